@@ -0,0 +1,497 @@
+package org.runedream.api.methods;
+
+import java.awt.Rectangle;
+
+import org.runedream.api.util.PointBuffer;
+
+/**
+ * A one-bit image over a rectangular area of the game image, such as the pixels of a frame matching a color.
+ * <br>
+ * Each row is packed into longs, 64 pixels per word: bit <tt>i % 64</tt> of word <tt>i / 64</tt> of a row holds the
+ * pixel <tt>i</tt> pixels right of the left edge. Bits past the right edge are always cleared.
+ * <br>
+ * Logical and morphological operations work on whole words, so combining masks or removing noise from them costs a
+ * few word operations per 64 pixels. Morphological operations treat pixels outside of the mask as cleared.
+ *
+ * @see ImageUtil#getMask(Frame, Rectangle, ColorMatcher)
+ */
+public final class BitMask {
+
+	private final int x;
+	private final int y;
+	private final int width;
+	private final int height;
+	private final int words;
+	private final long[] bits;
+
+	/**
+	 * Constructs an empty BitMask.
+	 * @param bounds The area of the game image the mask covers.
+	 */
+	public BitMask(final Rectangle bounds) {
+		this(bounds.x, bounds.y, bounds.width, bounds.height);
+	}
+
+	/**
+	 * Constructs an empty BitMask.
+	 * @param x The x coordinate of the upper left corner of the mask.
+	 * @param y The y coordinate of the upper left corner of the mask.
+	 * @param width The width of the mask.
+	 * @param height The height of the mask.
+	 */
+	public BitMask(final int x, final int y, final int width, final int height) {
+		if (width < 0 || height < 0) {
+			throw new IllegalArgumentException("Size: " + width + "x" + height);
+		}
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+		this.words = (width + 63) >>> 6;
+		this.bits = new long[words * height];
+	}
+
+	/**
+	 * Gets the x coordinate of the upper left corner of the mask.
+	 * @return The x coordinate.
+	 */
+	public int getX() {
+		return x;
+	}
+
+	/**
+	 * Gets the y coordinate of the upper left corner of the mask.
+	 * @return The y coordinate.
+	 */
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * Gets the width of the mask.
+	 * @return The width.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the height of the mask.
+	 * @return The height.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Gets the area of the game image the mask covers.
+	 * @return The bounds.
+	 */
+	public Rectangle getBounds() {
+		return new Rectangle(x, y, width, height);
+	}
+
+	/**
+	 * Gets the amount of words each row is packed into.
+	 * @return The amount of words per row.
+	 */
+	public int getWordsPerRow() {
+		return words;
+	}
+
+	/**
+	 * Gets the words of the mask, row by row. The array is not copied, so changes to it change the mask.
+	 * @return The words.
+	 */
+	public long[] getWords() {
+		return bits;
+	}
+
+	/**
+	 * Checks if a point of the game image is set.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return <tt>true</tt> if set; <tt>false</tt> if cleared or outside of the mask.
+	 */
+	public boolean get(final int x, final int y) {
+		final int column = x - this.x, row = y - this.y;
+		if (column < 0 || row < 0 || column >= width || row >= height) {
+			return false;
+		}
+		return (bits[row * words + (column >>> 6)] >>> column & 1L) != 0;
+	}
+
+	/**
+	 * Gets a run of up to 64 points of a row, packed into a word: bit <tt>i</tt> holds the point <tt>i</tt> pixels right
+	 * of the first.
+	 * @param x The x coordinate of the first point.
+	 * @param y The y coordinate of the row.
+	 * @param length The amount of points, between 1 and 64.
+	 * @return The points; those outside of the mask are cleared.
+	 */
+	public long getRow(final int x, final int y, final int length) {
+		final int column = x - this.x, row = y - this.y;
+		final int from = Math.max(column, 0), to = Math.min(column + length, width);
+		if (row < 0 || row >= height || from >= to) {
+			return 0;
+		}
+		final int i = row * words + (from >>> 6), shift = from & 63;
+		long run = bits[i] >>> shift;
+		if (shift != 0 && (from >>> 6) + 1 < words) {
+			run |= bits[i + 1] << (64 - shift);
+		}
+		if (to - from < 64) {
+			run &= (1L << (to - from)) - 1;
+		}
+		return run << (from - column);
+	}
+
+	/**
+	 * Gets the first set point of a row at or right of a given point.
+	 * @param x The x coordinate to search from.
+	 * @param y The y coordinate of the row.
+	 * @return The x coordinate of the point; or -1 if none.
+	 */
+	public int nextSet(final int x, final int y) {
+		final int column = Math.max(x - this.x, 0), row = y - this.y;
+		if (row < 0 || row >= height || column >= width) {
+			return -1;
+		}
+		final int base = row * words;
+		int w = column >>> 6;
+		long word = bits[base + w] & -1L << column;
+		while (word == 0) {
+			if (++w == words) {
+				return -1;
+			}
+			word = bits[base + w];
+		}
+		return this.x + (w << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	 * Sets or clears a point of the game image within the mask.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @param set <tt>true</tt> to set the point; <tt>false</tt> to clear it.
+	 */
+	public void set(final int x, final int y, final boolean set) {
+		final int column = x - this.x, row = y - this.y;
+		if (column < 0 || row < 0 || column >= width || row >= height) {
+			throw new IndexOutOfBoundsException("(" + x + ", " + y + ") outside of " + getBounds());
+		}
+		final int i = row * words + (column >>> 6);
+		if (set) {
+			bits[i] |= 1L << column;
+		} else {
+			bits[i] &= ~(1L << column);
+		}
+	}
+
+	/**
+	 * Gets the amount of set points of the mask.
+	 * @return The amount of set points.
+	 */
+	public int count() {
+		int count = 0;
+		for (final long word : bits) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the amount of set points of the mask within bounds.
+	 * @param bounds The bounds to count within.
+	 * @return The amount of set points.
+	 */
+	public int count(final Rectangle bounds) {
+		final Rectangle area = bounds.intersection(getBounds());
+		if (area.isEmpty()) {
+			return 0;
+		}
+		final int left = area.x - x, right = left + area.width;
+		final int first = left >>> 6, last = (right - 1) >>> 6;
+		final long firstMask = -1L << left, lastMask = -1L >>> (63 - ((right - 1) & 63));
+		int count = 0;
+		for (int row = area.y - y; row < area.y - y + area.height; row++) {
+			final int offset = row * words;
+			if (first == last) {
+				count += Long.bitCount(bits[offset + first] & firstMask & lastMask);
+				continue;
+			}
+			count += Long.bitCount(bits[offset + first] & firstMask);
+			for (int w = first + 1; w < last; w++) {
+				count += Long.bitCount(bits[offset + w]);
+			}
+			count += Long.bitCount(bits[offset + last] & lastMask);
+		}
+		return count;
+	}
+
+	/**
+	 * Checks if no point of the mask is set.
+	 * @return <tt>true</tt> if empty; otherwise <tt>false</tt>.
+	 */
+	public boolean isEmpty() {
+		for (final long word : bits) {
+			if (word != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the smallest rectangle holding every set point of the mask.
+	 * @return The bounding box; or null if the mask is empty.
+	 */
+	public Rectangle getBoundingBox() {
+		int minX = Integer.MAX_VALUE, maxX = -1, minY = -1, maxY = -1;
+		for (int row = 0; row < height; row++) {
+			for (int w = 0; w < words; w++) {
+				final long word = bits[row * words + w];
+				if (word != 0) {
+					if (minY < 0) {
+						minY = row;
+					}
+					maxY = row;
+					minX = Math.min(minX, (w << 6) + Long.numberOfTrailingZeros(word));
+					maxX = Math.max(maxX, (w << 6) + 63 - Long.numberOfLeadingZeros(word));
+				}
+			}
+		}
+		return minY < 0 ? null : new Rectangle(x + minX, y + minY, maxX - minX + 1, maxY - minY + 1);
+	}
+
+	/**
+	 * Gets the set points of the mask.
+	 * @return A buffer of the set points, in row-major order.
+	 */
+	public PointBuffer getPoints() {
+		final PointBuffer points = new PointBuffer();
+		for (int row = 0; row < height; row++) {
+			for (int w = 0; w < words; w++) {
+				for (long word = bits[row * words + w]; word != 0; word &= word - 1) {
+					points.add(x + (w << 6) + Long.numberOfTrailingZeros(word), y + row);
+				}
+			}
+		}
+		return points;
+	}
+
+	/**
+	 * Copies the mask.
+	 * @return The copy.
+	 */
+	public BitMask copy() {
+		final BitMask copy = new BitMask(x, y, width, height);
+		System.arraycopy(bits, 0, copy.bits, 0, bits.length);
+		return copy;
+	}
+
+	/**
+	 * Gets the points set in both this and another mask covering the same area.
+	 * @param other The other mask.
+	 * @return The intersection.
+	 */
+	public BitMask and(final BitMask other) {
+		final BitMask result = combine(other);
+		for (int i = 0; i < bits.length; i++) {
+			result.bits[i] = bits[i] & other.bits[i];
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the points set in either this or another mask covering the same area.
+	 * @param other The other mask.
+	 * @return The union.
+	 */
+	public BitMask or(final BitMask other) {
+		final BitMask result = combine(other);
+		for (int i = 0; i < bits.length; i++) {
+			result.bits[i] = bits[i] | other.bits[i];
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the points set in exactly one of this and another mask covering the same area.
+	 * @param other The other mask.
+	 * @return The symmetric difference.
+	 */
+	public BitMask xor(final BitMask other) {
+		final BitMask result = combine(other);
+		for (int i = 0; i < bits.length; i++) {
+			result.bits[i] = bits[i] ^ other.bits[i];
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the points set in this mask but not in another mask covering the same area.
+	 * @param other The other mask.
+	 * @return The difference.
+	 */
+	public BitMask andNot(final BitMask other) {
+		final BitMask result = combine(other);
+		for (int i = 0; i < bits.length; i++) {
+			result.bits[i] = bits[i] & ~other.bits[i];
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the points cleared in this mask.
+	 * @return The complement.
+	 */
+	public BitMask not() {
+		final BitMask result = new BitMask(x, y, width, height);
+		for (int i = 0; i < bits.length; i++) {
+			result.bits[i] = ~bits[i];
+		}
+		result.clearPadding();
+		return result;
+	}
+
+	private BitMask combine(final BitMask other) {
+		if (other.x != x || other.y != y || other.width != width || other.height != height) {
+			throw new IllegalArgumentException(other + " does not cover " + this);
+		}
+		return new BitMask(x, y, width, height);
+	}
+
+	/**
+	 * A structuring element of a morphological operation.
+	 */
+	public enum Element {
+		/**
+		 * A square, reaching its radius in every direction, diagonals included.
+		 */
+		SQUARE,
+		/**
+		 * A cross, reaching its radius horizontally and vertically.
+		 */
+		CROSS
+	}
+
+	/**
+	 * Grows the set areas of the mask: sets every point within reach of a set point.
+	 * @param element The shape of the reach.
+	 * @param radius The reach, in pixels.
+	 * @return The dilated mask.
+	 */
+	public BitMask dilate(final Element element, final int radius) {
+		return morph(element, radius, false);
+	}
+
+	/**
+	 * Shrinks the set areas of the mask: keeps only the points whose every point within reach is set.
+	 * @param element The shape of the reach.
+	 * @param radius The reach, in pixels.
+	 * @return The eroded mask.
+	 */
+	public BitMask erode(final Element element, final int radius) {
+		return morph(element, radius, true);
+	}
+
+	/**
+	 * Erodes and then dilates the mask, removing set areas too small to hold the element, such as single-pixel noise.
+	 * @param element The shape of the reach.
+	 * @param radius The reach, in pixels.
+	 * @return The opened mask.
+	 */
+	public BitMask open(final Element element, final int radius) {
+		return erode(element, radius).dilate(element, radius);
+	}
+
+	/**
+	 * Dilates and then erodes the mask, filling cleared gaps too small to hold the element.
+	 * @param element The shape of the reach.
+	 * @param radius The reach, in pixels.
+	 * @return The closed mask.
+	 */
+	public BitMask close(final Element element, final int radius) {
+		return dilate(element, radius).erode(element, radius);
+	}
+
+	private BitMask morph(final Element element, final int radius, final boolean erode) {
+		if (radius < 0) {
+			throw new IllegalArgumentException("Radius: " + radius);
+		}
+		if (element == Element.SQUARE) {
+			// a square is a horizontal line swept along a vertical one
+			final BitMask result = copy();
+			for (int i = 0; i < radius; i++) {
+				result.morphRows(erode);
+			}
+			for (int i = 0; i < radius; i++) {
+				result.morphColumns(erode);
+			}
+			return result;
+		}
+		// a cross is the union of its lines, so dilations by the lines are joined and erosions intersected
+		final BitMask rows = copy(), columns = copy();
+		for (int i = 0; i < radius; i++) {
+			rows.morphRows(erode);
+			columns.morphColumns(erode);
+		}
+		return erode ? rows.and(columns) : rows.or(columns);
+	}
+
+	/**
+	 * Dilates or erodes every row by one pixel to each side.
+	 */
+	private void morphRows(final boolean erode) {
+		for (int row = 0; row < height; row++) {
+			final int offset = row * words;
+			long previous = 0;
+			for (int w = 0; w < words; w++) {
+				final long word = bits[offset + w];
+				final long next = w + 1 < words ? bits[offset + w + 1] : 0;
+				// the neighbor to the left of each point, and the neighbor to its right
+				final long left = word << 1 | previous >>> 63;
+				final long right = word >>> 1 | next << 63;
+				bits[offset + w] = erode ? word & left & right : word | left | right;
+				previous = word;
+			}
+		}
+		clearPadding();
+	}
+
+	/**
+	 * Dilates or erodes every column by one pixel upward and downward.
+	 */
+	private void morphColumns(final boolean erode) {
+		final long[] above = new long[words], current = new long[words];
+		for (int row = 0; row < height; row++) {
+			final int offset = row * words;
+			System.arraycopy(bits, offset, current, 0, words);
+			for (int w = 0; w < words; w++) {
+				final long below = row + 1 < height ? bits[offset + words + w] : 0;
+				bits[offset + w] = erode ? current[w] & above[w] & below : current[w] | above[w] | below;
+			}
+			System.arraycopy(current, 0, above, 0, words);
+		}
+	}
+
+	/**
+	 * Clears the bits past the right edge of every row.
+	 */
+	private void clearPadding() {
+		if ((width & 63) == 0) {
+			return;
+		}
+		final long mask = (1L << (width & 63)) - 1;
+		for (int i = words - 1; i < bits.length; i += words) {
+			bits[i] &= mask;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "BitMask[x=" + x + ",y=" + y + ",width=" + width + ",height=" + height + "]";
+	}
+
+}
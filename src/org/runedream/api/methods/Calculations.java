@@ -3,7 +3,6 @@ package org.runedream.api.methods;
 import java.awt.Color;
 import java.awt.Point;
 import java.awt.Rectangle;
-import java.util.List;
 
 /**
  * Convenience methods for common calculations.
@@ -60,12 +59,13 @@ public final class Calculations {
 	 * @author Aidden
 	 */
 	public static double getColorConcentration(final Rectangle rectangle, final Color color, final int tolerance) {
-		final List<Point> points = ImageUtil.getPointsWithColor(Game.getImage(), rectangle, color, tolerance);
-		if (points == null || points.isEmpty()) {
+		final BitMask mask = ImageUtil.getMask(Game.getFrame(rectangle), rectangle, color, tolerance);
+		final int count = mask.count();
+		if (count == 0) {
 			return 0;
 		}
 		final double pixels = (double) (rectangle.getWidth() * rectangle.getHeight() * 100);
-		return Math.min((double) (points.size() / pixels), 100.00);
+		return Math.min(count / pixels, 100.00);
 	}
 
 	/**
@@ -108,12 +108,8 @@ public final class Calculations {
 	 * @author iSmokePurple
 	 */
 	public static Point getNearestPoint(final Point point, final Color color, final int tolerance) {
-		final List<Point> pts = Game.getPointsWithColor(color, tolerance);
-		final Point[] points = pts.toArray(new Point[pts.size()]);
-		if (points.length > 0) {
-			return getNearestPoint(point, points);
-		}
-		return null;
+		final Frame frame = Game.getFrame();
+		return ImageUtil.getNearestPointWithColor(frame, frame.getBounds(), point, color, tolerance);
 	}
 
 }
@@ -0,0 +1,325 @@
+package org.runedream.api.methods;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * A compiled color tolerance check for one or more colors.
+ * <br>
+ * The per-channel differences to each color are computed once into lookup tables, so checking a packed RGB value
+ * costs three array lookups and a comparison per color, without allocating a <tt>Color</tt>.
+ * <br>
+ * Runs of pixels are best checked with {@link #matchRow(int[], int, int, long[])}, which evaluates them without
+ * branching and packs the results into bitmasks.
+ * <br>
+ * Matchers are equal if they match the same colors, in the same order, by the same metric and tolerance.
+ */
+public final class ColorMatcher {
+
+	/**
+	 * An enumeration of color distance metrics.
+	 */
+	public enum Metric {
+		/**
+		 * The average of the channel differences, as in {@link ColorUtil#getDistance(Color, Color)}.
+		 */
+		AVERAGE,
+		/**
+		 * The sum of the channel differences.
+		 */
+		SUM,
+		/**
+		 * The euclidean distance between the colors.
+		 */
+		EUCLIDEAN,
+		/**
+		 * The largest channel difference.
+		 */
+		MAX,
+		/**
+		 * Every channel within the tolerance times the value of the channel,
+		 * as in {@link ImageUtil#getPointsWithColors(java.awt.image.BufferedImage, Color[], int)}.
+		 */
+		RELATIVE
+	}
+
+	private final Color[] colors;
+	private final int tolerance;
+	private final Metric metric;
+	private final int[][] tables;
+	private final int limit;
+	private final long[] filter = new long[12];
+	private final int red, green, blue;
+
+	/**
+	 * Constructs a ColorMatcher for a color, using the {@link Metric#AVERAGE} metric.
+	 * @param color The color to match.
+	 * @param tolerance The tolerance to match within.
+	 */
+	public ColorMatcher(final Color color, final int tolerance) {
+		this(Metric.AVERAGE, tolerance, color);
+	}
+
+	/**
+	 * Constructs a ColorMatcher for a color.
+	 * @param color The color to match.
+	 * @param tolerance The tolerance to match within.
+	 * @param metric The metric to measure distance by.
+	 */
+	public ColorMatcher(final Color color, final int tolerance, final Metric metric) {
+		this(metric, tolerance, color);
+	}
+
+	/**
+	 * Constructs a ColorMatcher matching any of a set of colors.
+	 * @param metric The metric to measure distance by.
+	 * @param tolerance The tolerance to match within.
+	 * @param colors The colors to match.
+	 */
+	public ColorMatcher(final Metric metric, final int tolerance, final Color... colors) {
+		this.colors = colors.clone();
+		this.tolerance = tolerance;
+		this.metric = metric;
+		switch (metric) {
+		case AVERAGE:
+			limit = tolerance * 3 + 2;
+			break;
+		case SUM:
+			limit = tolerance;
+			break;
+		case EUCLIDEAN:
+			limit = tolerance * tolerance;
+			break;
+		default:
+			limit = 0;
+		}
+		red = colors.length == 1 ? colors[0].getRed() : 0;
+		green = colors.length == 1 ? colors[0].getGreen() : 0;
+		blue = colors.length == 1 ? colors[0].getBlue() : 0;
+		tables = new int[colors.length][];
+		for (int i = 0; i < colors.length; i++) {
+			final int[] table = new int[768];
+			fill(table, 0, colors[i].getRed());
+			fill(table, 256, colors[i].getGreen());
+			fill(table, 512, colors[i].getBlue());
+			for (int j = 0; j < 768; j++) {
+				if (table[j] <= limit) {
+					filter[j >> 6] |= 1L << j;
+				}
+			}
+			tables[i] = table;
+		}
+	}
+
+	private void fill(final int[] table, final int offset, final int value) {
+		for (int v = 0; v < 256; v++) {
+			final int d = Math.abs(v - value);
+			final int cost;
+			switch (metric) {
+			case AVERAGE:
+			case SUM:
+				cost = d;
+				break;
+			case EUCLIDEAN:
+				cost = d * d;
+				break;
+			case MAX:
+				cost = d <= tolerance ? 0 : 1;
+				break;
+			default:
+				cost = v >= value - value * tolerance && v <= value + value * tolerance ? 0 : 1;
+			}
+			table[offset + v] = cost;
+		}
+	}
+
+	/**
+	 * Checks if a packed RGB value matches one of the colors. The alpha component is ignored.
+	 * @param rgb The RGB value to check.
+	 * @return <tt>true</tt> if matched; otherwise <tt>false</tt>.
+	 */
+	public boolean matches(final int rgb) {
+		final int r = (rgb >> 16) & 0xFF;
+		final int g = 256 + ((rgb >> 8) & 0xFF);
+		final int b = 512 + (rgb & 0xFF);
+		// a pixel can only match if every channel is within reach of some color
+		if (((filter[r >> 6] >>> r) & (filter[g >> 6] >>> g) & (filter[b >> 6] >>> b) & 1L) == 0) {
+			return false;
+		}
+		final int limit = this.limit;
+		for (final int[] table : tables) {
+			if (table[r] + table[g] + table[b] <= limit) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks a run of packed RGB values, 64 at a time. Bit <tt>i % 64</tt> of <tt>masks[i / 64]</tt> is set if the value at
+	 * <tt>offset + i</tt> matches one of the colors, and cleared otherwise.
+	 * @param pixels The array of RGB values.
+	 * @param offset The index of the first value to check.
+	 * @param length The amount of values to check.
+	 * @param masks The array to store the bitmasks in; of at least <tt>(length + 63) / 64</tt> elements.
+	 */
+	public void matchRow(final int[] pixels, final int offset, final int length, final long[] masks) {
+		final int end = offset + length;
+		for (int w = 0, start = offset; start < end; w++, start += 64) {
+			final int stop = Math.min(start + 64, end);
+			long bits = 0;
+			if (tables.length != 1) {
+				for (int i = start; i < stop; i++) {
+					if (matches(pixels[i])) {
+						bits |= 1L << (i - start);
+					}
+				}
+			} else if (metric == Metric.AVERAGE || metric == Metric.SUM) {
+				final int r = red, g = green, b = blue, limit = this.limit;
+				for (int i = start; i < stop; i++) {
+					final int p = pixels[i];
+					final int cost = Math.abs(((p >> 16) & 0xFF) - r) + Math.abs(((p >> 8) & 0xFF) - g) + Math.abs((p & 0xFF) - b);
+					bits |= (long) ((cost - limit - 1) >>> 31) << (i - start);
+				}
+			} else {
+				final int[] table = tables[0];
+				final int limit = this.limit;
+				for (int i = start; i < stop; i++) {
+					final int p = pixels[i];
+					final int cost = table[(p >> 16) & 0xFF] + table[256 + ((p >> 8) & 0xFF)] + table[512 + (p & 0xFF)];
+					bits |= (long) ((cost - limit - 1) >>> 31) << (i - start);
+				}
+			}
+			masks[w] = bits;
+		}
+	}
+
+	/**
+	 * Checks if any color with channels between those of two given colors could match one of the colors.
+	 * <br>
+	 * Useful to rule out a whole area of pixels at once, given the smallest and largest value of each channel within it.
+	 * @param min The RGB value made up of the smallest value of each channel.
+	 * @param max The RGB value made up of the largest value of each channel.
+	 * @return <tt>false</tt> if no color within the range matches; otherwise <tt>true</tt>.
+	 */
+	public boolean mayMatch(final int min, final int max) {
+		final int minR = (min >> 16) & 0xFF, minG = (min >> 8) & 0xFF, minB = min & 0xFF;
+		final int maxR = (max >> 16) & 0xFF, maxG = (max >> 8) & 0xFF, maxB = max & 0xFF;
+		for (int i = 0; i < tables.length; i++) {
+			// the cost of a channel only grows away from the color, so the closest value within the range is the cheapest
+			final Color color = colors[i];
+			final int[] table = tables[i];
+			final int r = Math.min(Math.max(color.getRed(), minR), maxR);
+			final int g = Math.min(Math.max(color.getGreen(), minG), maxG);
+			final int b = Math.min(Math.max(color.getBlue(), minB), maxB);
+			if (table[r] + table[256 + g] + table[512 + b] <= limit) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the share of all RGB values which match one of the colors; a measure of how rarely the matcher matches,
+	 * independent of any image. For several colors, the share of each color is summed, overcounting the values matching
+	 * more than one.
+	 * @return The share, between 0 and 1.
+	 */
+	public double getCoverage() {
+		long matched = 0;
+		final int[] blues = new int[256];
+		for (final int[] table : tables) {
+			System.arraycopy(table, 512, blues, 0, 256);
+			Arrays.sort(blues);
+			for (int r = 0; r < 256; r++) {
+				for (int g = 256; g < 512; g++) {
+					final int left = limit - table[r] - table[g];
+					if (left >= 0) {
+						// the amount of blue values costing no more than what is left
+						int low = 0, high = 256;
+						while (low < high) {
+							final int mid = (low + high) >>> 1;
+							if (blues[mid] <= left) {
+								low = mid + 1;
+							} else {
+								high = mid;
+							}
+						}
+						matched += low;
+					}
+				}
+			}
+		}
+		return Math.min(1.0, matched / (double) (1 << 24));
+	}
+
+	/**
+	 * Checks if a color matches one of the colors.
+	 * @param color The color to check.
+	 * @return <tt>true</tt> if matched; otherwise <tt>false</tt>.
+	 */
+	public boolean matches(final Color color) {
+		return matches(color.getRGB());
+	}
+
+	/**
+	 * Gets the colors matched.
+	 * @return The colors.
+	 */
+	public Color[] getColors() {
+		return colors.clone();
+	}
+
+	/**
+	 * Gets the tolerance matched within.
+	 * @return The tolerance.
+	 */
+	public int getTolerance() {
+		return tolerance;
+	}
+
+	/**
+	 * Gets the metric distance is measured by.
+	 * @return The metric.
+	 */
+	public Metric getMetric() {
+		return metric;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(final Object object) {
+		if (object instanceof ColorMatcher) {
+			final ColorMatcher matcher = (ColorMatcher) object;
+			return matcher.tolerance == tolerance && matcher.metric == metric && Arrays.equals(matcher.colors, colors);
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		return (Arrays.hashCode(colors) * 31 + tolerance) * 31 + metric.hashCode();
+	}
+
+	/**
+	 * Gets the amount of colors matched, without copying them.
+	 * @return The amount of colors.
+	 */
+	int getColorCount() {
+		return tables.length;
+	}
+
+	/**
+	 * Gets the largest summed cost of the channel differences which still matches.
+	 * @return The limit.
+	 */
+	int getLimit() {
+		return limit;
+	}
+
+}
@@ -54,7 +54,8 @@ public final class ColorUtil {
 	 * @return The "distance" between the two colors.
 	 */
 	public static int getDistance(final int rgb1, final int rgb2) {
-		return getDistance(new Color(rgb1), new Color(rgb2));
+		return getDistance((rgb1 >> 16) & 0xFF, (rgb1 >> 8) & 0xFF, rgb1 & 0xFF,
+				(rgb2 >> 16) & 0xFF, (rgb2 >> 8) & 0xFF, rgb2 & 0xFF);
 	}
 	
 	/**
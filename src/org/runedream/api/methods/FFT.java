@@ -0,0 +1,155 @@
+package org.runedream.api.methods;
+
+/**
+ * Radix-2 fast Fourier transforms of two-dimensional data, held as separate arrays of real and imaginary parts in
+ * row-major order. Widths and heights must be powers of two.
+ */
+public final class FFT {
+
+	private static final double[][] COSINES = new double[31][];
+	private static final double[][] SINES = new double[31][];
+
+	private FFT() {
+	}
+
+	/**
+	 * Gets the smallest power of two no smaller than a given size.
+	 * @param size The size.
+	 * @return The padded size.
+	 */
+	public static int getSize(final int size) {
+		int n = 1;
+		while (n < size) {
+			n <<= 1;
+		}
+		return n;
+	}
+
+	/**
+	 * Transforms complex data in place. The inverse transform is scaled, so that it undoes the forward transform.
+	 * @param re The real parts.
+	 * @param im The imaginary parts.
+	 * @param width The width of the data; a power of two.
+	 * @param height The height of the data; a power of two.
+	 * @param inverse <tt>true</tt> for the inverse transform; <tt>false</tt> for the forward transform.
+	 */
+	public static void transform(final double[] re, final double[] im, final int width, final int height,
+			final boolean inverse) {
+		for (int row = 0; row < height; row++) {
+			transformRow(re, im, row * width, width, inverse);
+		}
+		// columns are copied out to be transformed contiguously
+		final double[] columnRe = new double[height];
+		final double[] columnIm = new double[height];
+		for (int column = 0; column < width; column++) {
+			for (int row = 0, i = column; row < height; row++, i += width) {
+				columnRe[row] = re[i];
+				columnIm[row] = im[i];
+			}
+			transformRow(columnRe, columnIm, 0, height, inverse);
+			for (int row = 0, i = column; row < height; row++, i += width) {
+				re[i] = columnRe[row];
+				im[i] = columnIm[row];
+			}
+		}
+		if (inverse) {
+			final double scale = 1.0 / ((double) width * height);
+			for (int i = 0; i < re.length; i++) {
+				re[i] *= scale;
+				im[i] *= scale;
+			}
+		}
+	}
+
+	/**
+	 * Transforms two arrays of real data at once, by transforming them as the real and imaginary parts of one complex
+	 * array and separating the results by their symmetry.
+	 * @param a The first real data; replaced by the real parts of its transform.
+	 * @param b The second real data; replaced by the real parts of its transform.
+	 * @param aIm The array to store the imaginary parts of the transform of the first data in.
+	 * @param bIm The array to store the imaginary parts of the transform of the second data in.
+	 * @param width The width of the data; a power of two.
+	 * @param height The height of the data; a power of two.
+	 */
+	public static void transformReal(final double[] a, final double[] b, final double[] aIm, final double[] bIm,
+			final int width, final int height) {
+		transform(a, b, width, height, false);
+		for (int row = 0; row < height; row++) {
+			final int mirrorRow = (height - row) & (height - 1);
+			for (int column = 0; column < width; column++) {
+				final int k = row * width + column;
+				final int m = mirrorRow * width + ((width - column) & (width - 1));
+				if (m < k) {
+					continue;
+				}
+				// the transform of real data is conjugate symmetric, that of imaginary data conjugate antisymmetric
+				final double kr = a[k], ki = b[k], mr = a[m], mi = b[m];
+				a[k] = (kr + mr) / 2;
+				aIm[k] = (ki - mi) / 2;
+				b[k] = (ki + mi) / 2;
+				bIm[k] = (mr - kr) / 2;
+				a[m] = a[k];
+				aIm[m] = -aIm[k];
+				b[m] = b[k];
+				bIm[m] = -bIm[k];
+			}
+		}
+	}
+
+	private static void transformRow(final double[] re, final double[] im, final int offset, final int length,
+			final boolean inverse) {
+		for (int i = 1, j = 0; i < length; i++) {
+			int bit = length >> 1;
+			for (; (j & bit) != 0; bit >>= 1) {
+				j ^= bit;
+			}
+			j ^= bit;
+			if (i < j) {
+				final double r = re[offset + i], m = im[offset + i];
+				re[offset + i] = re[offset + j];
+				im[offset + i] = im[offset + j];
+				re[offset + j] = r;
+				im[offset + j] = m;
+			}
+		}
+		final int log = Integer.numberOfTrailingZeros(length);
+		final double[] cosines = getCosines(log);
+		final double[] sines = SINES[log];
+		for (int size = 2; size <= length; size <<= 1) {
+			final int half = size >> 1;
+			final int step = length / size;
+			for (int start = offset; start < offset + length; start += size) {
+				for (int k = 0; k < half; k++) {
+					final double wr = cosines[k * step];
+					final double wi = inverse ? sines[k * step] : -sines[k * step];
+					final int a = start + k, b = a + half;
+					final double xr = re[b] * wr - im[b] * wi;
+					final double xi = re[b] * wi + im[b] * wr;
+					re[b] = re[a] - xr;
+					im[b] = im[a] - xi;
+					re[a] += xr;
+					im[a] += xi;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the cosines, and builds the sines, of the angles of a transform of <tt>2^log</tt> values.
+	 */
+	private static synchronized double[] getCosines(final int log) {
+		if (COSINES[log] == null) {
+			final int length = 1 << log;
+			final double[] cosines = new double[Math.max(length >> 1, 1)];
+			final double[] sines = new double[cosines.length];
+			for (int k = 0; k < cosines.length; k++) {
+				cosines[k] = Math.cos(2 * Math.PI * k / length);
+				sines[k] = Math.sin(2 * Math.PI * k / length);
+			}
+			SINES[log] = sines;
+			COSINES[log] = cosines;
+		}
+		return COSINES[log];
+	}
+
+}
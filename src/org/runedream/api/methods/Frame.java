@@ -0,0 +1,218 @@
+package org.runedream.api.methods;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An immutable snapshot of an image, backed by a packed array of RGB values.
+ * <br>
+ * Grab a frame once and pass it to every query of a tick to read a consistent image without
+ * paying for a <tt>BufferedImage.getRGB</tt> call per pixel.
+ * <br>
+ * A frame may cover only a region of its image; coordinates are always those of the image.
+ */
+public final class Frame {
+
+	private static final AtomicLong COUNTER = new AtomicLong();
+
+	private final int[] pixels;
+	private final int x;
+	private final int y;
+	private final int width;
+	private final int height;
+	private final long id;
+
+	private Frame(final int[] pixels, final int x, final int y, final int width, final int height) {
+		this.pixels = pixels;
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+		this.id = COUNTER.incrementAndGet();
+	}
+
+	/**
+	 * Captures a frame of a given image.
+	 * @param image The image to capture.
+	 * @return The captured frame.
+	 */
+	public static Frame capture(final BufferedImage image) {
+		return capture(image, new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+	}
+
+	/**
+	 * Captures a frame of a region of a given image. Only the pixels within the region are read.
+	 * @param image The image to capture.
+	 * @param region The region to capture; clipped to the bounds of the image.
+	 * @return The captured frame.
+	 */
+	public static Frame capture(final BufferedImage image, final Rectangle region) {
+		final Rectangle r = region.intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+		final int w = Math.max(r.width, 0);
+		final int h = Math.max(r.height, 0);
+		final int[] pixels = new int[w * h];
+		if (w == 0 || h == 0) {
+			return new Frame(pixels, r.x, r.y, 0, 0);
+		}
+		final int type = image.getType();
+		final Raster raster = image.getRaster();
+		if ((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+				&& raster.getDataBuffer() instanceof DataBufferInt
+				&& raster.getSampleModel() instanceof SinglePixelPackedSampleModel) {
+			final DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+			final int[] data = buffer.getData();
+			final int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+			final int base = buffer.getOffset() - raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX();
+			for (int row = 0; row < h; row++) {
+				System.arraycopy(data, base + (r.y + row) * stride + r.x, pixels, row * w, w);
+			}
+			if (type == BufferedImage.TYPE_INT_RGB) {
+				for (int i = 0; i < pixels.length; i++) {
+					pixels[i] |= 0xFF000000;
+				}
+			}
+		} else {
+			image.getRGB(r.x, r.y, w, h, pixels, 0, w);
+		}
+		return new Frame(pixels, r.x, r.y, w, h);
+	}
+
+	/**
+	 * Gets the unique id of this frame. Ids increase with every capture.
+	 * @return The frame id.
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Gets the x coordinate of the upper left corner of this frame.
+	 * @return The x coordinate.
+	 */
+	public int getX() {
+		return x;
+	}
+
+	/**
+	 * Gets the y coordinate of the upper left corner of this frame.
+	 * @return The y coordinate.
+	 */
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * Gets the width of this frame.
+	 * @return The width.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the height of this frame.
+	 * @return The height.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Gets the bounds of this frame.
+	 * @return The bounds.
+	 */
+	public Rectangle getBounds() {
+		return new Rectangle(x, y, width, height);
+	}
+
+	/**
+	 * Gets the backing array of RGB values, in row-major order with a scanline of {@link #getWidth()},
+	 * starting at ({@link #getX()}, {@link #getY()}).
+	 * <br>
+	 * The array is shared and must not be modified.
+	 * @return The array of RGB values.
+	 */
+	public int[] getPixels() {
+		return pixels;
+	}
+
+	/**
+	 * Checks if a given x-y coordinate lies within this frame.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return <tt>true</tt> if within the frame; otherwise <tt>false</tt>.
+	 */
+	public boolean contains(final int x, final int y) {
+		return x >= this.x && y >= this.y && x < this.x + width && y < this.y + height;
+	}
+
+	/**
+	 * Checks if a given rectangle lies entirely within this frame.
+	 * @param bounds The rectangle.
+	 * @return <tt>true</tt> if within the frame; otherwise <tt>false</tt>.
+	 */
+	public boolean contains(final Rectangle bounds) {
+		return bounds.x >= x && bounds.y >= y && bounds.x + bounds.width <= x + width
+				&& bounds.y + bounds.height <= y + height;
+	}
+
+	/**
+	 * Gets the index of a given x-y coordinate within the array of RGB values. The coordinate must lie within this frame.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return The index.
+	 * @see #getPixels()
+	 */
+	public int indexOf(final int x, final int y) {
+		return (y - this.y) * width + x - this.x;
+	}
+
+	/**
+	 * Gets the RGB value at a given x-y coordinate, as returned by {@link BufferedImage#getRGB(int, int)}.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return The RGB value; or that of black if outside of the frame.
+	 */
+	public int getRGB(final int x, final int y) {
+		if (contains(x, y)) {
+			return pixels[(y - this.y) * width + x - this.x];
+		}
+		return 0xFF000000;
+	}
+
+	/**
+	 * Gets the color at a given x-y coordinate.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return The color; or black if outside of the frame.
+	 */
+	public Color getColorAt(final int x, final int y) {
+		return new Color(getRGB(x, y));
+	}
+
+	/**
+	 * Gets the color at a given point.
+	 * @param p The point.
+	 * @return The color; or black if outside of the frame.
+	 */
+	public Color getColorAt(final Point p) {
+		return getColorAt(p.x, p.y);
+	}
+
+	/**
+	 * Creates an image of this frame. The upper left corner of the image is that of the frame.
+	 * @return A new image of this frame.
+	 */
+	public BufferedImage toImage() {
+		final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		image.setRGB(0, 0, width, height, pixels, 0, width);
+		return image;
+	}
+
+}
@@ -11,6 +11,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import org.runedream.api.util.Filter;
+import org.runedream.api.util.PointBuffer;
 import org.runedream.api.util.Random;
 
 /**
@@ -28,6 +29,8 @@ public final class Game {
 	public static final Rectangle SCREEN = new Rectangle(0, 0, 765, 503);
 	public static final Point[] CORNER_POINTS = { new Point(0, 0), new Point(764, 0), new Point(0, 502), new Point(764, 502) };
 	public static final Color[] CORNER_COLORS = { new Color(33, 27, 12), new Color(49, 43, 33), new Color(40, 36, 25), new Color(39, 35, 24) };
+	private static final ColorMatcher[] CORNER_MATCHERS = { new ColorMatcher(CORNER_COLORS[0], 1), new ColorMatcher(CORNER_COLORS[1], 1),
+			new ColorMatcher(CORNER_COLORS[2], 1), new ColorMatcher(CORNER_COLORS[3], 1) };
 	
 	private Game() {
 	}
@@ -40,6 +43,23 @@ public final class Game {
 		return GameCanvas.getImage();
 	}
 	
+	/**
+	 * Captures a snapshot of the game image.
+	 * @return A frame of the game image.
+	 */
+	public static Frame getFrame() {
+		return Frame.capture(getImage());
+	}
+	
+	/**
+	 * Captures a snapshot of a region of the game image. Only the pixels within the region are read.
+	 * @param region The region to capture.
+	 * @return A frame of the region of the game image.
+	 */
+	public static Frame getFrame(final Rectangle region) {
+		return Frame.capture(getImage(), region);
+	}
+	
 	/**
 	 * Gets the color at a given x-y coordinate on the game image.
 	 * @param x The x coordinate.
@@ -59,12 +79,33 @@ public final class Game {
 		return getColorAt(p.x, p.y);
 	}
 	
+	/**
+	 * Gets the color at a given x-y coordinate on a frame of the game image.
+	 * @param frame The frame.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return The color at the given coordinates.
+	 */
+	public static Color getColorAt(final Frame frame, final int x, final int y) {
+		return frame.getColorAt(x, y);
+	}
+	
+	/**
+	 * Gets the color at a given point on a frame of the game image.
+	 * @param frame The frame.
+	 * @param p The point
+	 * @return The color at the given point.
+	 */
+	public static Color getColorAt(final Frame frame, final Point p) {
+		return frame.getColorAt(p);
+	}
+	
 	/**
 	 * Gets the array of all colors of the game image.
 	 * @return A two-dimensional array of the colors of the game image.
 	 */
 	public static Color[][] getColors() {
-		return ImageUtil.getColors(Game.getImage());
+		return ImageUtil.getColors(getFrame());
 	}
 	
 	/**
@@ -74,7 +115,7 @@ public final class Game {
 	 * @return A list of points where the color of the game image is within the threshold.
 	 */
 	public static List<Point> getPointsWithColor(final Color color, final int threshold) {
-		return ImageUtil.getPointsWithColor(Game.getImage(), color, threshold);
+		return getPointsWithColor(getFrame(), color, threshold);
 	}
 
 	/**
@@ -86,6 +127,27 @@ public final class Game {
 		return getPointsWithColor(color, 0);
 	}
 	
+	/**
+	 * Gets all points within a frame of the game image which have a color within threshold distance of a given color.
+	 * @param frame The frame to scan.
+	 * @param color The color to scan for.
+	 * @param threshold The threshold to scan by.
+	 * @return A list of points where the color of the frame is within the threshold.
+	 */
+	public static List<Point> getPointsWithColor(final Frame frame, final Color color, final int threshold) {
+		return ImageUtil.getPointsWithColor(frame, color, threshold);
+	}
+
+	/**
+	 * Gets all points within a frame of the game image which have a color equal to a given color.
+	 * @param frame The frame to scan.
+	 * @param color The color to scan for.
+	 * @return A list of points where the color of the frame is equal.
+	 */
+	public static List<Point> getPointsWithColor(final Frame frame, final Color color) {
+		return getPointsWithColor(frame, color, 0);
+	}
+	
 	/**
 	 * Gets the first point within a bounded area that is accepted by a filter.
 	 * @param bound The bounds to search within.
@@ -112,15 +174,25 @@ public final class Game {
 	 * @author Dang
 	 */
    public Point[] getPoints(final Rectangle bound, final Filter<Point> filter) {
-        final List<Point> points = new LinkedList<Point>();
+        return getPoints(bound, filter, new PointBuffer()).toArray();
+   }
+
+	/**
+	 * Gets all points within a bounded area that are accepted by a filter.
+	 * @param bound The bounds to search within.
+	 * @param filter The filter to apply.
+	 * @param buffer The buffer to append accepted points to.
+	 * @return The given buffer.
+	 */
+   public PointBuffer getPoints(final Rectangle bound, final Filter<Point> filter, final PointBuffer buffer) {
         for (int x = bound.x; x < bound.x + bound.width; x++) {
              for (int y = bound.y; y < bound.y + bound.height; y++) {
                   if (filter.accept(new Point(x, y))) {
-                       points.add(new Point(x, y));
+                       buffer.add(x, y);
                   }
              }
         }
-        return points.toArray(new Point[points.size()]);
+        return buffer;
    }
 
 	/**
@@ -179,9 +251,18 @@ public final class Game {
 	 * @return <tt>true</tt> if logged in; otherwise <tt>false</tt>.
 	 */
 	public static boolean isLoggedIn() {
+		return isLoggedIn(getFrame());
+	}
+	
+	/**
+	 * Checks if a frame of the game image has a character logged in.  Does not account for Squeal of Fortune and other "covering" interfaces.
+	 * @param frame The frame to check.
+	 * @return <tt>true</tt> if logged in; otherwise <tt>false</tt>.
+	 */
+	public static boolean isLoggedIn(final Frame frame) {
 		int valids = 0;
 		for (int i = 0; i < CORNER_POINTS.length; i++) {
-			if (ColorUtil.isTolerable(getColorAt(CORNER_POINTS[i]), CORNER_COLORS[i], 1)) {
+			if (CORNER_MATCHERS[i].matches(frame.getRGB(CORNER_POINTS[i].x, CORNER_POINTS[i].y))) {
 				valids++;
 			}
 		}
@@ -201,10 +282,19 @@ public final class Game {
 	 * @return The energy button's colors.
 	 */
 	public static Color[][] getEnergyButtonColors() {
+		return getEnergyButtonColors(getFrame());
+	}
+	
+	/**
+	 * Gets the color array of the energy button's display on a frame of the game image.
+	 * @param frame The frame to read.
+	 * @return The energy button's colors.
+	 */
+	public static Color[][] getEnergyButtonColors(final Frame frame) {
 		final Color[][] colors = new Color[ENERGY.width][ENERGY.height];
 		for (int x = ENERGY.x; x < ENERGY.x + ENERGY.width; x++) {
 			for (int y = ENERGY.y; y < ENERGY.y + ENERGY.height; y++) {
-				colors[x][y] = Game.getColors()[x][y];
+				colors[x - ENERGY.x][y - ENERGY.y] = frame.getColorAt(x, y);
 			}
 		}
 		return colors;
@@ -215,7 +305,16 @@ public final class Game {
 	 * @return <tt>true</tt> if enabled; otherwise <tt>false</tt>.
 	 */
 	public static boolean isRunEnabled() {
-		for (final Color[] carr : getEnergyButtonColors()) {
+		return isRunEnabled(getFrame());
+	}
+	
+	/**
+	 * Checks if run is enabled on a frame of the game image.
+	 * @param frame The frame to check.
+	 * @return <tt>true</tt> if enabled; otherwise <tt>false</tt>.
+	 */
+	public static boolean isRunEnabled(final Frame frame) {
+		for (final Color[] carr : getEnergyButtonColors(frame)) {
 			for (final Color c : carr) {
 				if (c.equals(ENERGY_ENABLED)) {
 					return true;
@@ -281,10 +380,19 @@ public final class Game {
 		 * @return The experience button's colors.
 		 */
 		public static Color[][] getColors() {
+			return getColors(getFrame());
+		}
+		
+		/**
+		 * Gets the color array of the experience button on a frame of the game image.
+		 * @param frame The frame to read.
+		 * @return The experience button's colors.
+		 */
+		public static Color[][] getColors(final Frame frame) {
 			final Color[][] colors = new Color[BOUNDS.width][BOUNDS.height];
 			for (int x = BOUNDS.x; x < BOUNDS.x + BOUNDS.width; x++) {
 				for (int y = BOUNDS.y; y < BOUNDS.y + BOUNDS.height; y++) {
-					colors[x][y] = Game.getColors()[x][y];
+					colors[x - BOUNDS.x][y - BOUNDS.y] = frame.getColorAt(x, y);
 				}
 			}
 			return colors;
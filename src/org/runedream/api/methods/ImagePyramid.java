@@ -0,0 +1,273 @@
+package org.runedream.api.methods;
+
+import java.util.Arrays;
+
+/**
+ * A pyramid of downsampled levels of a frame, for ruling out areas of the frame before searching them at full
+ * resolution.
+ * <br>
+ * Each level divides the frame into square cells, twice as wide as those of the level below, and records the sum of
+ * each channel along with the smallest and largest value of each channel within every cell. Level 0 is the frame
+ * itself. Levels are built on first use.
+ * <br>
+ * Pyramids are cached by frame: every caller passing the same frame to {@link #of(Frame)} shares one pyramid.
+ */
+public final class ImagePyramid {
+
+	/**
+	 * The highest level of a pyramid; with cells of 8 by 8 pixels.
+	 */
+	public static final int MAX_LEVEL = 3;
+
+	private static volatile ImagePyramid last;
+
+	private final Frame frame;
+	private final Level[] levels = new Level[MAX_LEVEL + 1];
+
+	private ImagePyramid(final Frame frame) {
+		this.frame = frame;
+	}
+
+	/**
+	 * Gets the pyramid of a frame, building it if the frame was not the last one a pyramid was requested for.
+	 * @param frame The frame.
+	 * @return The pyramid of the frame.
+	 */
+	public static ImagePyramid of(final Frame frame) {
+		ImagePyramid pyramid = last;
+		if (pyramid == null || pyramid.frame != frame) {
+			pyramid = new ImagePyramid(frame);
+			last = pyramid;
+		}
+		return pyramid;
+	}
+
+	/**
+	 * Gets the frame of this pyramid.
+	 * @return The frame.
+	 */
+	public Frame getFrame() {
+		return frame;
+	}
+
+	/**
+	 * Gets a level of this pyramid, building it if needed.
+	 * @param level The level, between 1 and {@link #MAX_LEVEL}.
+	 * @return The level.
+	 */
+	public synchronized Level getLevel(final int level) {
+		if (level < 1 || level > MAX_LEVEL) {
+			throw new IllegalArgumentException("Level: " + level);
+		}
+		if (levels[level] == null) {
+			levels[level] = level == 1 ? Level.build(frame) : Level.build(getLevel(level - 1));
+		}
+		return levels[level];
+	}
+
+	/**
+	 * A level of a pyramid.
+	 */
+	public static final class Level {
+
+		private final int shift;
+		private final int x;
+		private final int y;
+		private final int width;
+		private final int height;
+		private final int[] red;
+		private final int[] green;
+		private final int[] blue;
+		private final int[] min;
+		private final int[] max;
+
+		private Level(final int shift, final int x, final int y, final int width, final int height) {
+			this.shift = shift;
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+			final int cells = width * height;
+			red = new int[cells];
+			green = new int[cells];
+			blue = new int[cells];
+			min = new int[cells];
+			max = new int[cells];
+			Arrays.fill(min, 0xFFFFFF);
+		}
+
+		/**
+		 * Builds the first level from the pixels of a frame.
+		 */
+		private static Level build(final Frame frame) {
+			final int frameWidth = frame.getWidth();
+			final int frameHeight = frame.getHeight();
+			final Level level = new Level(1, frame.getX(), frame.getY(), (frameWidth + 1) >> 1, (frameHeight + 1) >> 1);
+			final int[] pixels = frame.getPixels();
+			for (int py = 0; py < frameHeight; py++) {
+				final int row = (py >> 1) * level.width;
+				for (int px = 0, i = py * frameWidth; px < frameWidth; px++, i++) {
+					final int p = pixels[i];
+					level.add(row + (px >> 1), (p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF, p, p);
+				}
+			}
+			return level;
+		}
+
+		/**
+		 * Builds a level from the level below it.
+		 */
+		private static Level build(final Level below) {
+			final Level level = new Level(below.shift + 1, below.x, below.y, (below.width + 1) >> 1, (below.height + 1) >> 1);
+			for (int cy = 0; cy < below.height; cy++) {
+				final int row = (cy >> 1) * level.width;
+				for (int cx = 0, i = cy * below.width; cx < below.width; cx++, i++) {
+					level.add(row + (cx >> 1), below.red[i], below.green[i], below.blue[i], below.min[i], below.max[i]);
+				}
+			}
+			return level;
+		}
+
+		private void add(final int cell, final int r, final int g, final int b, final int low, final int high) {
+			red[cell] += r;
+			green[cell] += g;
+			blue[cell] += b;
+			final int m = min[cell], n = max[cell];
+			min[cell] = Math.min(m & 0xFF0000, low & 0xFF0000) | Math.min(m & 0xFF00, low & 0xFF00) | Math.min(m & 0xFF, low & 0xFF);
+			max[cell] = Math.max(n & 0xFF0000, high & 0xFF0000) | Math.max(n & 0xFF00, high & 0xFF00) | Math.max(n & 0xFF, high & 0xFF);
+		}
+
+		/**
+		 * Gets the width and height in pixels of the cells of this level.
+		 * @return The scale.
+		 */
+		public int getScale() {
+			return 1 << shift;
+		}
+
+		/**
+		 * Gets the width of this level, in cells.
+		 * @return The width.
+		 */
+		public int getWidth() {
+			return width;
+		}
+
+		/**
+		 * Gets the height of this level, in cells.
+		 * @return The height.
+		 */
+		public int getHeight() {
+			return height;
+		}
+
+		/**
+		 * Gets the column of the cell containing a given x coordinate of the frame.
+		 * @param x The x coordinate.
+		 * @return The column; negative or past the width if outside of the frame.
+		 */
+		public int toColumn(final int x) {
+			return (x - this.x) >> shift;
+		}
+
+		/**
+		 * Gets the row of the cell containing a given y coordinate of the frame.
+		 * @param y The y coordinate.
+		 * @return The row; negative or past the height if outside of the frame.
+		 */
+		public int toRow(final int y) {
+			return (y - this.y) >> shift;
+		}
+
+		/**
+		 * Gets the x coordinate of the left edge of a given column.
+		 * @param column The column.
+		 * @return The x coordinate.
+		 */
+		public int toX(final int column) {
+			return x + (column << shift);
+		}
+
+		/**
+		 * Gets the y coordinate of the top edge of a given row.
+		 * @param row The row.
+		 * @return The y coordinate.
+		 */
+		public int toY(final int row) {
+			return y + (row << shift);
+		}
+
+		/**
+		 * Checks if a given cell lies within this level.
+		 * @param column The column of the cell.
+		 * @param row The row of the cell.
+		 * @return <tt>true</tt> if within the level; otherwise <tt>false</tt>.
+		 */
+		public boolean contains(final int column, final int row) {
+			return column >= 0 && row >= 0 && column < width && row < height;
+		}
+
+		/**
+		 * Gets the sum of the red values within a cell.
+		 * @param column The column of the cell.
+		 * @param row The row of the cell.
+		 * @return The sum.
+		 */
+		public int getRedSum(final int column, final int row) {
+			return red[row * width + column];
+		}
+
+		/**
+		 * Gets the sum of the green values within a cell.
+		 * @param column The column of the cell.
+		 * @param row The row of the cell.
+		 * @return The sum.
+		 */
+		public int getGreenSum(final int column, final int row) {
+			return green[row * width + column];
+		}
+
+		/**
+		 * Gets the sum of the blue values within a cell.
+		 * @param column The column of the cell.
+		 * @param row The row of the cell.
+		 * @return The sum.
+		 */
+		public int getBlueSum(final int column, final int row) {
+			return blue[row * width + column];
+		}
+
+		/**
+		 * Gets the smallest value of each channel within a cell.
+		 * @param column The column of the cell.
+		 * @param row The row of the cell.
+		 * @return The RGB value made up of the smallest value of each channel.
+		 */
+		public int getMinimum(final int column, final int row) {
+			return min[row * width + column];
+		}
+
+		/**
+		 * Gets the largest value of each channel within a cell.
+		 * @param column The column of the cell.
+		 * @param row The row of the cell.
+		 * @return The RGB value made up of the largest value of each channel.
+		 */
+		public int getMaximum(final int column, final int row) {
+			return max[row * width + column];
+		}
+
+		/**
+		 * Checks if a pixel within a cell could be matched by a given matcher.
+		 * @param column The column of the cell.
+		 * @param row The row of the cell.
+		 * @param matcher The matcher.
+		 * @return <tt>false</tt> if no pixel within the cell is matched; otherwise <tt>true</tt>.
+		 */
+		public boolean mayMatch(final int column, final int row, final ColorMatcher matcher) {
+			final int i = row * width + column;
+			return matcher.mayMatch(min[i], max[i]);
+		}
+	}
+
+}
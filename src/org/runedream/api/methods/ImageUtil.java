@@ -7,18 +7,57 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.WeakHashMap;
 
-import org.runedream.api.util.Random;
+import org.runedream.api.util.PointBuffer;
+import org.runedream.api.wrappers.Blob;
+import org.runedream.api.wrappers.Template;
+import org.runedream.api.wrappers.TemplateSet;
 
 /**
  * Image-related utility methods.
+ * <br>
+ * Fully transparent pixels of images searched for are not matched, so sprites whose background has been made
+ * transparent match over any background.
+ * <br>
+ * The templates built for searched images are kept for as long as the images are, so repeated searches for an
+ * unchanged image reuse the work cached by its template.
+ * <br>
+ * Color scans check rows of pixels with the vector API when it is available, and with plain loops otherwise.
  */
 public final class ImageUtil {
+
+	private static final Map<BufferedImage, Template> TEMPLATES = new WeakHashMap<BufferedImage, Template>();
+	private static final ScanKernel KERNEL = ScanKernel.load();
 	
 	private ImageUtil() {
 	}
 
+	/**
+	 * Gets the template of an image, reusing the one built for an earlier search if the image is unchanged.
+	 * @param image The image.
+	 * @return The template of the image.
+	 */
+	private static Template getTemplate(final BufferedImage image) {
+		final Frame frame = Frame.capture(image);
+		final Template cached;
+		synchronized (TEMPLATES) {
+			cached = TEMPLATES.get(image);
+		}
+		// comparing the pixels is far cheaper than compiling them, so a template is only built when the image changed
+		if (cached != null && cached.isOf(frame)) {
+			return cached;
+		}
+		final Template template = new Template(frame);
+		synchronized (TEMPLATES) {
+			TEMPLATES.put(image, template);
+		}
+		return template;
+	}
+
 	/**
 	 * Gets an image's array of RGB values.
 	 * @param image The image to get the RGB values of.
@@ -55,18 +94,50 @@ public final class ImageUtil {
 		return getColorAt(image, p.x, p.y);
 	}
 
+	/**
+	 * Gets the color at a given x-y coordinate on the given frame.
+	 * @param frame The frame.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return The color at the given coordinates.
+	 */
+	public static Color getColorAt(final Frame frame, final int x, final int y) {
+		return frame.getColorAt(x, y);
+	}
+
+	/**
+	 * Gets the color at a given point on the given frame.
+	 * @param frame The frame.
+	 * @param p The point.
+	 * @return The color at the given point.
+	 */
+	public static Color getColorAt(final Frame frame, final Point p) {
+		return frame.getColorAt(p);
+	}
+
 	/**
 	 * Gets the array of all colors of the given image.
 	 * @param image The image.
 	 * @return A two-dimensional array of the colors of the given image.
 	 */
 	public static Color[][] getColors(final BufferedImage image) {
-		final int w = image.getWidth();
-		final int h = image.getHeight();
+		return getColors(Frame.capture(image));
+	}
+
+	/**
+	 * Gets the array of all colors of the given frame.
+	 * @param frame The frame.
+	 * @return A two-dimensional array of the colors of the given frame.
+	 */
+	public static Color[][] getColors(final Frame frame) {
+		final int w = frame.getWidth();
+		final int h = frame.getHeight();
+		final int[] pixels = frame.getPixels();
 		final Color[][] colors = new Color[w][h];
+		// indexed relative to the frame's upper left corner
 		for (int x = 0; x < w; x++) {
 			for (int y = 0; y < h; y++) {
-				colors[x][y] = getColorAt(image, x, y);
+				colors[x][y] = new Color(pixels[y * w + x]);
 			}
 		}
 		return colors;
@@ -82,8 +153,7 @@ public final class ImageUtil {
 	 */
 	public static Point getRandomPoint(final BufferedImage image, final Rectangle bounds,
 			final Color color, final int threshold){
-		LinkedList<Point> points = getPointsWithColor(image, bounds, color, threshold);
-		return points.size() > 0 ? points.get(Random.random(0, points.size())) : null;
+		return getRandomPoint(Frame.capture(image, bounds), bounds, color, threshold);
 	}
 
 	/**
@@ -94,8 +164,7 @@ public final class ImageUtil {
 	 * @return A random point meeting the given conditions.
 	 */
 	public static Point getRandomPoint(final BufferedImage image, final Color color, final int threshold){
-		LinkedList<Point> points = getPointsWithColor(image, color, threshold);
-		return points.size() > 0 ? points.get(Random.random(0, points.size())) : null;
+		return getRandomPoint(Frame.capture(image), color, threshold);
 	}
 
 	/**
@@ -106,8 +175,7 @@ public final class ImageUtil {
 	 * @return A random point meeting the given conditions.
 	 */
 	public static Point getRandomPoint(final BufferedImage image, final Rectangle bounds, final Color color){
-		LinkedList<Point> points = getPointsWithColor(image, bounds, color);
-		return points.size() > 0 ? points.get(Random.random(0, points.size())) : null;
+		return getRandomPoint(image, bounds, color, 0);
 	}
 
 	/**
@@ -117,8 +185,52 @@ public final class ImageUtil {
 	 * @return A random point meeting the given conditions.
 	 */
 	public static Point getRandomPoint(final BufferedImage image, final Color color){
-		LinkedList<Point> points = getPointsWithColor(image, color);
-		return points.size() > 0 ? points.get(Random.random(0, points.size())) : null;
+		return getRandomPoint(image, color, 0);
+	}
+
+	/**
+	 * Gets a random point within a given threshold of a given color in given bounds of a given frame.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param color The color to scan for.
+	 * @param threshold The threshold to scan by.
+	 * @return A random point meeting the given conditions.
+	 */
+	public static Point getRandomPoint(final Frame frame, final Rectangle bounds,
+			final Color color, final int threshold){
+		return getPointsWithColor(frame, bounds, color, threshold, new PointBuffer()).getRandom();
+	}
+
+	/**
+	 * Gets a random point within a given threshold of a given color in a given frame.
+	 * @param frame The frame to scan.
+	 * @param color The color to scan for.
+	 * @param threshold The threshold to scan by.
+	 * @return A random point meeting the given conditions.
+	 */
+	public static Point getRandomPoint(final Frame frame, final Color color, final int threshold){
+		return getRandomPoint(frame, frame.getBounds(), color, threshold);
+	}
+
+	/**
+	 * Gets a random point of a given color in given bounds of a given frame.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param color The color to scan for.
+	 * @return A random point meeting the given conditions.
+	 */
+	public static Point getRandomPoint(final Frame frame, final Rectangle bounds, final Color color){
+		return getRandomPoint(frame, bounds, color, 0);
+	}
+
+	/**
+	 * Gets a random point of a given color in a given frame.
+	 * @param frame The frame to scan.
+	 * @param color The color to scan for.
+	 * @return A random point meeting the given conditions.
+	 */
+	public static Point getRandomPoint(final Frame frame, final Color color){
+		return getRandomPoint(frame, color, 0);
 	}
 
 	/**
@@ -131,16 +243,7 @@ public final class ImageUtil {
 	 */
 	public static LinkedList<Point> getPointsWithColor(final BufferedImage image, final Rectangle bounds,
 			final Color color, final int threshold) {
-		final LinkedList<Point> points = new LinkedList<Point>();
-		final Color[][] colors = getColors(image);
-		for (int x = bounds.x; x < bounds.width + bounds.x; x++) {
-			for (int y = bounds.y; y < bounds.height + bounds.y; y++) {
-				if (ColorUtil.getDistance(colors[x][y], color) <= threshold) {
-					points.add(new Point(x, y));
-				}
-			}
-		}
-		return points;
+		return getPointsWithColor(Frame.capture(image, bounds), bounds, color, threshold);
 	}
 
 	/**
@@ -177,6 +280,446 @@ public final class ImageUtil {
 		return getPointsWithColor(image, color, 0);
 	}
 
+	/**
+	 * Gets all points within a frame which have a color within threshold distance of a given color.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param color The color to scan for.
+	 * @param threshold The threshold to scan by.
+	 * @return A list of points where the color of the frame is within the threshold.
+	 */
+	public static LinkedList<Point> getPointsWithColor(final Frame frame, final Rectangle bounds,
+			final Color color, final int threshold) {
+		return getPointsWithColor(frame, bounds, color, threshold, new PointBuffer()).toList();
+	}
+
+	/**
+	 * Gets all points within a frame which have a color within threshold distance of a given color.
+	 * <br>
+	 * Only the pixels within the bounds are read, in row-major order.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param color The color to scan for.
+	 * @param threshold The threshold to scan by.
+	 * @param buffer The buffer to append matching points to.
+	 * @return The given buffer.
+	 */
+	public static PointBuffer getPointsWithColor(final Frame frame, final Rectangle bounds,
+			final Color color, final int threshold, final PointBuffer buffer) {
+		return getPointsWithColor(frame, bounds, new ColorMatcher(color, threshold), buffer);
+	}
+
+	/**
+	 * Gets all points within a frame which have a color matched by a given matcher.
+	 * <br>
+	 * Only the pixels within the bounds are read, in row-major order.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param matcher The matcher to scan by.
+	 * @param buffer The buffer to append matching points to.
+	 * @return The given buffer.
+	 */
+	public static PointBuffer getPointsWithColor(final Frame frame, final Rectangle bounds,
+			final ColorMatcher matcher, final PointBuffer buffer) {
+		scan(frame, bounds, matcher, buffer, false);
+		return buffer;
+	}
+
+	/**
+	 * Gets the first point within a frame which has a color within threshold distance of a given color.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param color The color to scan for.
+	 * @param threshold The threshold to scan by.
+	 * @return The first matching point in row-major order; or null if none.
+	 */
+	public static Point getFirstPointWithColor(final Frame frame, final Rectangle bounds,
+			final Color color, final int threshold) {
+		return getFirstPointWithColor(frame, bounds, new ColorMatcher(color, threshold));
+	}
+
+	/**
+	 * Gets the first point within a frame which has a color matched by a given matcher.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param matcher The matcher to scan by.
+	 * @return The first matching point in row-major order; or null if none.
+	 */
+	public static Point getFirstPointWithColor(final Frame frame, final Rectangle bounds,
+			final ColorMatcher matcher) {
+		final PointBuffer buffer = new PointBuffer(1);
+		scan(frame, bounds, matcher, buffer, true);
+		return buffer.isEmpty() ? null : buffer.get(0);
+	}
+
+	/**
+	 * Gets the point within a frame nearest to a given point which has a color within threshold distance of a given
+	 * color.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param point The point to get the nearest to.
+	 * @param color The color to scan for.
+	 * @param threshold The threshold to scan by.
+	 * @return The nearest matching point; or null if none.
+	 */
+	public static Point getNearestPointWithColor(final Frame frame, final Rectangle bounds, final Point point,
+			final Color color, final int threshold) {
+		return getNearestPointWithColor(frame, bounds, point, new ColorMatcher(color, threshold));
+	}
+
+	/**
+	 * Gets the point within a frame nearest to a given point which has a color matched by a given matcher.
+	 * <br>
+	 * Pixels are read outward from the point, stopping once no nearer pixel remains.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param point The point to get the nearest to.
+	 * @param matcher The matcher to scan by.
+	 * @return The nearest matching point; or null if none.
+	 * @see SpiralSearch
+	 */
+	public static Point getNearestPointWithColor(final Frame frame, final Rectangle bounds, final Point point,
+			final ColorMatcher matcher) {
+		final int[] pixels = frame.getPixels();
+		return SpiralSearch.getNearest(bounds.intersection(frame.getBounds()), point, new SpiralSearch.Check() {
+			public boolean check(final int x, final int y) {
+				return matcher.matches(pixels[frame.indexOf(x, y)]);
+			}
+		});
+	}
+
+	/**
+	 * Checks if a frame has a color within threshold distance of a given color within given bounds.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param color The color to scan for.
+	 * @param threshold The threshold to scan by.
+	 * @return <tt>true</tt> if the color was found; otherwise <tt>false</tt>.
+	 */
+	public static boolean containsColor(final Frame frame, final Rectangle bounds,
+			final Color color, final int threshold) {
+		return containsColor(frame, bounds, new ColorMatcher(color, threshold));
+	}
+
+	/**
+	 * Checks if a frame has a color matched by a given matcher within given bounds.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param matcher The matcher to scan by.
+	 * @return <tt>true</tt> if the color was found; otherwise <tt>false</tt>.
+	 */
+	public static boolean containsColor(final Frame frame, final Rectangle bounds, final ColorMatcher matcher) {
+		return scan(frame, bounds, matcher, null, true) > 0;
+	}
+
+	/**
+	 * Counts the points within a frame which have a color within threshold distance of a given color.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param color The color to scan for.
+	 * @param threshold The threshold to scan by.
+	 * @return The amount of matching points.
+	 */
+	public static int getColorCount(final Frame frame, final Rectangle bounds,
+			final Color color, final int threshold) {
+		return getColorCount(frame, bounds, new ColorMatcher(color, threshold));
+	}
+
+	/**
+	 * Counts the points within a frame which have a color matched by a given matcher.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param matcher The matcher to scan by.
+	 * @return The amount of matching points.
+	 */
+	public static int getColorCount(final Frame frame, final Rectangle bounds, final ColorMatcher matcher) {
+		return scan(frame, bounds, matcher, null, false);
+	}
+
+	/**
+	 * Gets the mask of the points within a frame which have a color within threshold distance of a given color.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param color The color to scan for.
+	 * @param threshold The threshold to scan by.
+	 * @return The mask, covering the part of the bounds lying within the frame.
+	 */
+	public static BitMask getMask(final Frame frame, final Rectangle bounds, final Color color, final int threshold) {
+		return getMask(frame, bounds, new ColorMatcher(color, threshold));
+	}
+
+	/**
+	 * Gets the mask of the points within a frame which have a color matched by a given matcher.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param matcher The matcher to scan by.
+	 * @return The mask, covering the part of the bounds lying within the frame.
+	 */
+	public static BitMask getMask(final Frame frame, final Rectangle bounds, final ColorMatcher matcher) {
+		final BitMask mask = new BitMask(bounds.intersection(frame.getBounds()));
+		final int words = mask.getWordsPerRow();
+		final long[] bits = mask.getWords();
+		final long[] row = new long[words];
+		final int[] pixels = frame.getPixels();
+		for (int y = 0; y < mask.getHeight(); y++) {
+			KERNEL.matchRow(matcher, pixels, frame.indexOf(mask.getX(), mask.getY() + y), mask.getWidth(), row);
+			System.arraycopy(row, 0, bits, y * words, words);
+		}
+		return mask;
+	}
+
+	/**
+	 * Gets the connected clusters of set points of a mask, in a single pass labelling the runs of set points of each
+	 * row and joining those which touch the runs of the row above.
+	 * @param mask The mask.
+	 * @param connectivity 4 to join points sharing an edge; 8 to also join points sharing only a corner.
+	 * @param minArea The smallest amount of points of a cluster to return.
+	 * @param maxArea The largest amount of points of a cluster to return.
+	 * @return The clusters, ordered by their first point in row-major order.
+	 */
+	public static Blob[] getBlobs(final BitMask mask, final int connectivity, final int minArea, final int maxArea) {
+		if (connectivity != 4 && connectivity != 8) {
+			throw new IllegalArgumentException("Connectivity: " + connectivity);
+		}
+		final int slack = connectivity == 8 ? 1 : 0;
+		final int width = mask.getWidth(), height = mask.getHeight(), words = mask.getWordsPerRow();
+		final long[] bits = mask.getWords();
+		// runs as pairs of the first column and the column past the last
+		int[] runs = new int[64];
+		int count = 0;
+		final int[] rowStarts = new int[height + 1];
+		int[] parents = new int[32];
+		for (int y = 0; y < height; y++) {
+			rowStarts[y] = count;
+			int start = -1;
+			for (int w = 0; w < words; w++) {
+				final long word = bits[y * words + w];
+				int bit = 0;
+				while (true) {
+					// alternately look for the next set bit, starting a run, and the next cleared bit, ending it
+					final long rest = (start < 0 ? word : ~word) & (-1L << bit);
+					if (rest == 0) {
+						break;
+					}
+					bit = Long.numberOfTrailingZeros(rest);
+					if (start < 0) {
+						start = (w << 6) + bit;
+					} else {
+						if (count * 2 == runs.length) {
+							runs = Arrays.copyOf(runs, runs.length * 2);
+							parents = Arrays.copyOf(parents, parents.length * 2);
+						}
+						runs[count * 2] = start;
+						runs[count * 2 + 1] = (w << 6) + bit;
+						parents[count] = count;
+						count++;
+						start = -1;
+					}
+				}
+			}
+			if (start >= 0) {
+				if (count * 2 == runs.length) {
+					runs = Arrays.copyOf(runs, runs.length * 2);
+					parents = Arrays.copyOf(parents, parents.length * 2);
+				}
+				runs[count * 2] = start;
+				runs[count * 2 + 1] = width;
+				parents[count] = count;
+				count++;
+			}
+			if (y > 0) {
+				int above = rowStarts[y - 1];
+				final int aboveEnd = rowStarts[y];
+				for (int run = rowStarts[y]; run < count; run++) {
+					final int runStart = runs[run * 2], runEnd = runs[run * 2 + 1];
+					while (above < aboveEnd && runs[above * 2 + 1] + slack <= runStart) {
+						above++;
+					}
+					for (int a = above; a < aboveEnd && runs[a * 2] < runEnd + slack; a++) {
+						union(parents, a, run);
+					}
+				}
+			}
+		}
+		rowStarts[height] = count;
+		// number the clusters by their first run, and count their runs and points
+		final int[] labels = new int[count];
+		int[] areas = new int[16];
+		int[] sizes = new int[16];
+		int clusters = 0;
+		for (int run = 0; run < count; run++) {
+			final int root = find(parents, run);
+			if (root == run) {
+				if (clusters == areas.length) {
+					areas = Arrays.copyOf(areas, clusters * 2);
+					sizes = Arrays.copyOf(sizes, clusters * 2);
+				}
+				labels[run] = clusters++;
+			} else {
+				labels[run] = labels[root];
+			}
+			areas[labels[run]] += runs[run * 2 + 1] - runs[run * 2];
+			sizes[labels[run]]++;
+		}
+		final int[][] spans = new int[clusters][];
+		final int[] filled = new int[clusters];
+		for (int i = 0; i < clusters; i++) {
+			if (areas[i] >= minArea && areas[i] <= maxArea) {
+				spans[i] = new int[sizes[i] * 3];
+			}
+		}
+		for (int y = 0; y < height; y++) {
+			for (int run = rowStarts[y]; run < rowStarts[y + 1]; run++) {
+				final int[] blob = spans[labels[run]];
+				if (blob != null) {
+					final int i = filled[labels[run]];
+					blob[i] = mask.getY() + y;
+					blob[i + 1] = mask.getX() + runs[run * 2];
+					blob[i + 2] = mask.getX() + runs[run * 2 + 1];
+					filled[labels[run]] = i + 3;
+				}
+			}
+		}
+		final LinkedList<Blob> blobs = new LinkedList<Blob>();
+		for (final int[] blob : spans) {
+			if (blob != null) {
+				blobs.add(new Blob(blob));
+			}
+		}
+		return blobs.toArray(new Blob[blobs.size()]);
+	}
+
+	/**
+	 * Gets the 8-connected clusters of set points of a mask.
+	 * @param mask The mask.
+	 * @return The clusters, ordered by their first point in row-major order.
+	 */
+	public static Blob[] getBlobs(final BitMask mask) {
+		return getBlobs(mask, 8, 1, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Gets the 8-connected clusters of points within a frame which have a color matched by a given matcher.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param matcher The matcher to scan by.
+	 * @param minArea The smallest amount of points of a cluster to return.
+	 * @return The clusters, ordered by their first point in row-major order.
+	 */
+	public static Blob[] getBlobs(final Frame frame, final Rectangle bounds, final ColorMatcher matcher,
+			final int minArea) {
+		return getBlobs(getMask(frame, bounds, matcher), 8, minArea, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Gets the 8-connected clusters of points within a frame which have a color within threshold distance of a given
+	 * color.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param color The color to scan for.
+	 * @param threshold The threshold to scan by.
+	 * @param minArea The smallest amount of points of a cluster to return.
+	 * @return The clusters, ordered by their first point in row-major order.
+	 */
+	public static Blob[] getBlobs(final Frame frame, final Rectangle bounds, final Color color, final int threshold,
+			final int minArea) {
+		return getBlobs(frame, bounds, new ColorMatcher(color, threshold), minArea);
+	}
+
+	/**
+	 * Joins the sets of two runs, keeping the earlier root so that every set is rooted at its first run.
+	 */
+	private static void union(final int[] parents, final int a, final int b) {
+		final int rootA = find(parents, a), rootB = find(parents, b);
+		if (rootA < rootB) {
+			parents[rootB] = rootA;
+		} else if (rootB < rootA) {
+			parents[rootA] = rootB;
+		}
+	}
+
+	private static int find(final int[] parents, int run) {
+		while (parents[run] != run) {
+			parents[run] = parents[parents[run]];
+			run = parents[run];
+		}
+		return run;
+	}
+
+	/**
+	 * Scans the part of the bounds lying within a frame for a color, reading only the pixels within the bounds.
+	 * Large bounds are scanned in parallel.
+	 * @param buffer The buffer to append matching points to; or null to only count them.
+	 * @param first <tt>true</tt> to stop after the first match.
+	 * @return The amount of matches found.
+	 */
+	private static int scan(final Frame frame, final Rectangle bounds, final ColorMatcher matcher,
+			final PointBuffer buffer, final boolean first) {
+		return ParallelSearch.search(bounds.intersection(frame.getBounds()), new ParallelSearch.Search() {
+			public int search(final Rectangle band, final PointBuffer points, final boolean stop) {
+				return scanBand(frame, band, matcher, points, stop);
+			}
+		}, buffer, first);
+	}
+
+	private static int scanBand(final Frame frame, final Rectangle area, final ColorMatcher matcher,
+			final PointBuffer buffer, final boolean first) {
+		final int[] pixels = frame.getPixels();
+		final long[] masks = new long[(area.width + 63) >>> 6];
+		int count = 0;
+		for (int y = area.y; y < area.y + area.height; y++) {
+			KERNEL.matchRow(matcher, pixels, frame.indexOf(area.x, y), area.width, masks);
+			for (int w = 0; w < masks.length; w++) {
+				long bits = masks[w];
+				while (bits != 0) {
+					if (buffer != null) {
+						buffer.add(area.x + (w << 6) + Long.numberOfTrailingZeros(bits), y);
+					}
+					count++;
+					if (first) {
+						return count;
+					}
+					bits &= bits - 1;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Gets all points within a frame which have a color equal to a given color.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param color The color to scan for.
+	 * @return A list of points where the color of the frame is equal.
+	 */
+	public static LinkedList<Point> getPointsWithColor(final Frame frame,
+			final Rectangle bounds, final Color color) {
+		return getPointsWithColor(frame, bounds, color, 0);
+	}
+
+	/**
+	 * Gets all points within a frame which have a color within threshold distance of a given color.
+	 * @param frame The frame to scan.
+	 * @param color The color to scan for.
+	 * @param threshold The threshold to scan by.
+	 * @return A list of points where the color of the frame is within the threshold.
+	 */
+	public static LinkedList<Point> getPointsWithColor(final Frame frame,
+			final Color color, final int threshold) {
+		return getPointsWithColor(frame, frame.getBounds(), color, threshold);
+	}
+
+	/**
+	 * Gets all points within a frame which have a color equal to a given color.
+	 * @param frame The frame to scan.
+	 * @param color The color to scan for.
+	 * @return A list of points where the color of the frame is equal.
+	 */
+	public static LinkedList<Point> getPointsWithColor(final Frame frame, final Color color) {
+		return getPointsWithColor(frame, color, 0);
+	}
+
 	/**
 	 * Gets all points within an image which have a color within threshold distance of given colors.
 	 * @param image The image to scan.
@@ -187,28 +730,7 @@ public final class ImageUtil {
 	 */
 	public static LinkedList<Point> getPointsWithColors(final BufferedImage image,
 			final Rectangle bounds, final Color[] colors, final int threshold) {
-		final LinkedList<Point> points = new LinkedList<Point>();
-		for (int x = bounds.x; x < bounds.width + bounds.x; x++) {
-			for (int y = bounds.y; y < bounds.height + bounds.y; y++) {
-				final Color pointColor = new Color(image.getRGB(x, y));
-				for (final Color color : colors) {
-					final double foundRed = pointColor.getRed();
-					final double foundGreen = pointColor.getGreen();
-					final double foundBlue = pointColor.getBlue();
-					final double minRed = (color.getRed() - (color.getRed() * threshold));
-					final double maxRed = (color.getRed() + (color.getRed() * threshold));
-					final double minGreen = (color.getGreen() - (color.getGreen() * threshold));
-					final double maxGreen = (color.getGreen() + (color.getGreen() * threshold));
-					final double minBlue = (color.getBlue() - (color.getBlue() * threshold));
-					final double maxBlue = (color.getBlue() + (color.getBlue() * threshold));
-					if (isWithinRange(foundRed, minRed, maxRed)
-							&& isWithinRange(foundGreen, minGreen, maxGreen)
-							&& isWithinRange(foundBlue, minBlue, maxBlue))
-						points.add(new Point(x, y));
-				}
-			}
-		}
-		return points;
+		return getPointsWithColors(Frame.capture(image, bounds), bounds, colors, threshold);
 	}
 
 	/**
@@ -245,12 +767,70 @@ public final class ImageUtil {
 		return getPointsWithColors(image, colors, 0);
 	}
 
-	private static boolean isWithinRange(final double d, final double a, final double x) {
-		return (d >= a && d <= x);
+	/**
+	 * Gets all points within a frame which have a color within threshold distance of given colors.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param colors The colors to scan for.
+	 * @param threshold The threshold to scan by.
+	 * @return A list of points where a color of the frame is within the threshold.
+	 */
+	public static LinkedList<Point> getPointsWithColors(final Frame frame,
+			final Rectangle bounds, final Color[] colors, final int threshold) {
+		return getPointsWithColors(frame, bounds, colors, threshold, new PointBuffer()).toList();
 	}
 
 	/**
-	 * Makes a color in a given image transparent.
+	 * Gets all points within a frame which have a color within threshold distance of given colors.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param colors The colors to scan for.
+	 * @param threshold The threshold to scan by.
+	 * @param buffer The buffer to append matching points to.
+	 * @return The given buffer.
+	 */
+	public static PointBuffer getPointsWithColors(final Frame frame,
+			final Rectangle bounds, final Color[] colors, final int threshold, final PointBuffer buffer) {
+		return getPointsWithColor(frame, bounds, new ColorMatcher(ColorMatcher.Metric.RELATIVE, threshold, colors), buffer);
+	}
+
+	/**
+	 * Gets all points within a frame which have a color within threshold distance of given colors.
+	 * @param frame The frame to scan.
+	 * @param colors The colors to scan for.
+	 * @param threshold The threshold to scan by.
+	 * @return A list of points where a color of the frame is within the threshold.
+	 */
+	public static LinkedList<Point> getPointsWithColors(final Frame frame,
+			final Color[] colors, final int threshold) {
+		return getPointsWithColors(frame, frame.getBounds(), colors, threshold);
+	}
+
+	/**
+	 * Gets all points within a frame which have a color equal to one of given colors.
+	 * @param frame The frame to scan.
+	 * @param bounds The bounds to scan within.
+	 * @param colors The colors to scan for.
+	 * @return A list of points where a color of the frame is equal to one of given colors.
+	 */
+	public static LinkedList<Point> getPointsWithColors(final Frame frame,
+			final Rectangle bounds, final Color[] colors) {
+		return getPointsWithColors(frame, bounds, colors, 0);
+	}
+
+	/**
+	 * Gets all points within a frame which have a color equal to one of given colors.
+	 * @param frame The frame to scan.
+	 * @param colors The colors to scan for.
+	 * @return A list of points where a color of the frame is equal to one of given colors.
+	 */
+	public static LinkedList<Point> getPointsWithColors(final Frame frame, final Color[] colors) {
+		return getPointsWithColors(frame, colors, 0);
+	}
+
+	/**
+	 * Makes a color in a given image fully transparent, such as the background of a sprite. Fully transparent pixels
+	 * are not matched when searching for the image.
 	 * @param source The source image.
 	 * @param color The color to make transparent.
 	 * @return The altered image.
@@ -260,13 +840,14 @@ public final class ImageUtil {
 				source.getHeight(), BufferedImage.TYPE_INT_ARGB);  
 		final Graphics2D g = image.createGraphics();  
 		g.setComposite(AlphaComposite.Src);
-		g.drawImage(image, null, 0, 0);
+		g.drawImage(source, null, 0, 0);
 		g.dispose();
-		final int colorRGB = color.getRGB();
+		final int colorRGB = color.getRGB() & 0xFFFFFF;
 		for(int i = 0; i < image.getHeight(); i++) {  
 			for(int j = 0; j < image.getWidth(); j++) {  
-				if (image.getRGB(j, i) == colorRGB) {  
-					image.setRGB(j, i, 0x8F1C1C);
+				final int rgb = image.getRGB(j, i) & 0xFFFFFF;
+				if (rgb == colorRGB) {  
+					image.setRGB(j, i, rgb);
 				}  
 			}  
 		}  
@@ -381,12 +962,12 @@ public final class ImageUtil {
 	 * Finds all locations in a parent image where a smaller image is matched by a given threshold.
 	 * @param large The large, parent image.
 	 * @param small The small image to search for in the large image.
-	 * @param threshold The image distance threshold, ranging between 0.0 and 1.0.
+	 * @param threshold The largest mean difference of the channel values, ranging between 0 and 255.
 	 * @return A list of points where matches were found.
 	 */
 	public static LinkedList<Point> findMatchLocations(final BufferedImage large,
 			final BufferedImage small, final int threshold) {
-		return findMatchLocations(large, small, threshold, false);
+		return findMatchLocations(Frame.capture(large), small, threshold);
 	}
 
 	/**
@@ -399,45 +980,96 @@ public final class ImageUtil {
 		return findMatchLocations(large, small, 0);
 	}
 
-	private static LinkedList<Point> findMatchLocations(final BufferedImage large,
-			final BufferedImage small, final int threshold, final boolean breakAfterFirst) {
-		final LinkedList<Point> locs = new LinkedList<Point>();
-		for (int y = 0; y < large.getHeight() - small.getHeight(); y++) {
-			for (int x = 0; x < large.getWidth() - small.getWidth(); x++) {
-				if (imageDistance(large, x, y, small) <= threshold) {
-					locs.add(new Point(x,y));
-					if (breakAfterFirst) {
-						return locs;
-					}
-				}
-			}
-		}
-		return locs;
+	/**
+	 * Finds all locations in a frame where a smaller image is matched by a given threshold.
+	 * @param large The frame to search within.
+	 * @param small The small image to search for in the frame.
+	 * @param threshold The largest mean difference of the channel values, ranging between 0 and 255.
+	 * @return A list of points where matches were found.
+	 */
+	public static LinkedList<Point> findMatchLocations(final Frame large,
+			final BufferedImage small, final int threshold) {
+		return findMatchLocations(large, small, threshold, new PointBuffer()).toList();
 	}
 
-	private static double imageDistance(final BufferedImage large,
-			final int bx, final int by, final BufferedImage small) {
-		float dist = 0.0F;
-		for (int y = 0; y < small.getHeight(); y++) {
-			for (int x = 0; x < small.getWidth(); x++) {
-				for (int colorChannel = 0; colorChannel < 3; colorChannel++) {
-					dist += Math.pow(small.getRGB(x, y) - large.getRGB(x, y), 2);
-				}
-			}
+	/**
+	 * Finds all locations in a frame where a smaller image is matched by a given threshold.
+	 * @param large The frame to search within.
+	 * @param small The small image to search for in the frame.
+	 * @param threshold The largest mean difference of the channel values, ranging between 0 and 255.
+	 * @param buffer The buffer to append match locations to.
+	 * @return The given buffer.
+	 */
+	public static PointBuffer findMatchLocations(final Frame large,
+			final BufferedImage small, final int threshold, final PointBuffer buffer) {
+		if (threshold == 0) {
+			// exact matches are found by hashing, at a cost independent of the size of the small image
+			buffer.addAll(new TemplateSet(getTemplate(small)).getAll(large, large.getBounds())[0]);
+			return buffer;
 		}
-		return Math.sqrt(dist) / small.getWidth() / large.getHeight();
+		return getTemplate(small).getAll(ImagePyramid.of(large), large.getBounds(), Template.Metric.SAD, threshold, buffer);
+	}
+
+	/**
+	 * Finds all locations in a frame where a smaller image is exactly matched.
+	 * @param large The frame to search within.
+	 * @param small The small image to search for in the frame.
+	 * @return A list of points where matches were found.
+	 */
+	public static LinkedList<Point> findMatchLocations(final Frame large, final BufferedImage small) {
+		return findMatchLocations(large, small, 0);
+	}
+
+	/**
+	 * Finds all locations in a parent image where a smaller image is correlated by at least a given amount, regardless
+	 * of differences in brightness and contrast. Large images are correlated in the frequency domain.
+	 * @param large The large, parent image.
+	 * @param small The small image to search for in the large image.
+	 * @param correlation The smallest normalized cross-correlation of the channel values, ranging between -1 and 1.
+	 * @return A list of points where matches were found.
+	 */
+	public static LinkedList<Point> findCorrelatedLocations(final BufferedImage large,
+			final BufferedImage small, final double correlation) {
+		return findCorrelatedLocations(Frame.capture(large), small, correlation);
+	}
+
+	/**
+	 * Finds all locations in a frame where a smaller image is correlated by at least a given amount, regardless of
+	 * differences in brightness and contrast. Large images are correlated in the frequency domain.
+	 * @param large The frame to search within.
+	 * @param small The small image to search for in the frame.
+	 * @param correlation The smallest normalized cross-correlation of the channel values, ranging between -1 and 1.
+	 * @return A list of points where matches were found.
+	 */
+	public static LinkedList<Point> findCorrelatedLocations(final Frame large,
+			final BufferedImage small, final double correlation) {
+		return findCorrelatedLocations(large, small, correlation, new PointBuffer()).toList();
+	}
+
+	/**
+	 * Finds all locations in a frame where a smaller image is correlated by at least a given amount, regardless of
+	 * differences in brightness and contrast. Large images are correlated in the frequency domain.
+	 * @param large The frame to search within.
+	 * @param small The small image to search for in the frame.
+	 * @param correlation The smallest normalized cross-correlation of the channel values, ranging between -1 and 1.
+	 * @param buffer The buffer to append match locations to.
+	 * @return The given buffer.
+	 */
+	public static PointBuffer findCorrelatedLocations(final Frame large,
+			final BufferedImage small, final double correlation, final PointBuffer buffer) {
+		return getTemplate(small).getAll(large, large.getBounds(), Template.Metric.NCC, correlation, buffer);
 	}
 
 	/**
 	 * Gets whether a larger image contains a smaller image or not by a given threshold.
 	 * @param large The large, parent image.
 	 * @param small The small image to search for in the large image.
-	 * @param threshold The image distance threshold, ranging between 0 and 255.
+	 * @param threshold The largest mean difference of the channel values, ranging between 0 and 255.
 	 * @return <tt>true</tt> if the large image contains the small image; otherwise <tt>false</tt>.
 	 */
 	public static boolean imageContains(final BufferedImage large,
 			final BufferedImage small, final int threshold) {
-		return findMatchLocations(large, small, threshold, true).size() > 0;
+		return imageContains(Frame.capture(large), small, threshold);
 	}
 
 	/**
@@ -450,6 +1082,28 @@ public final class ImageUtil {
 		return imageContains(large, small, 0);
 	}
 
+	/**
+	 * Gets whether a frame contains a smaller image or not by a given threshold.
+	 * @param large The frame to search within.
+	 * @param small The small image to search for in the frame.
+	 * @param threshold The largest mean difference of the channel values, ranging between 0 and 255.
+	 * @return <tt>true</tt> if the frame contains the small image; otherwise <tt>false</tt>.
+	 */
+	public static boolean imageContains(final Frame large,
+			final BufferedImage small, final int threshold) {
+		return subImageContains(large, large.getBounds(), small, threshold);
+	}
+
+	/**
+	 * Gets whether a frame contains an exact match of a smaller image or not.
+	 * @param large The frame to search within.
+	 * @param small The small image to search for in the frame.
+	 * @return <tt>true</tt> if the frame contains the small image; otherwise <tt>false</tt>.
+	 */
+	public static boolean imageContains(final Frame large, final BufferedImage small) {
+		return imageContains(large, small, 0);
+	}
+
 	/**
 	 * Gets whether the sub image of a larger image contains a smaller image by a given threshold or not.
 	 * @param large The large, parent image.
@@ -458,12 +1112,13 @@ public final class ImageUtil {
 	 * @param width The width of the sub image.
 	 * @param height The height of the sub image.
 	 * @param small The small image to search for in the large image.
-	 * @param threshold The image distance threshold, ranging between 0 and 255.
+	 * @param threshold The largest mean difference of the channel values, ranging between 0 and 255.
 	 * @return <tt>true</tt> if the sub image of the large image contains the small image; otherwise <tt>false</tt>.
 	 */
 	public static boolean subImageContains(final BufferedImage large, final int x, final int y,
 			final int width, final int height, final BufferedImage small, final int threshold) {
-		return imageContains(large.getSubimage(x, y, width, height), small, threshold);
+		final Rectangle sub = new Rectangle(x, y, width, height);
+		return subImageContains(Frame.capture(large, sub), sub, small, threshold);
 	}
 
 	/**
@@ -486,7 +1141,7 @@ public final class ImageUtil {
 	 * @param large The large, parent image.
 	 * @param sub The bounds of the sub image.
 	 * @param small The small image to search for in the large image.
-	 * @param threshold The image distance threshold, ranging between 0 and 255.
+	 * @param threshold The largest mean difference of the channel values, ranging between 0 and 255.
 	 * @return <tt>true</tt> if the sub image of the large image contains the small image; otherwise <tt>false</tt>.
 	 */
 	public static boolean subImageContains(final BufferedImage large,
@@ -506,4 +1161,32 @@ public final class ImageUtil {
 		return subImageContains(large, sub, small, 0);
 	}
 
+	/**
+	 * Gets whether a sub area of a frame contains a smaller image by a given threshold or not.
+	 * @param large The frame to search within.
+	 * @param sub The bounds of the sub area.
+	 * @param small The small image to search for in the frame.
+	 * @param threshold The largest mean difference of the channel values, ranging between 0 and 255.
+	 * @return <tt>true</tt> if the sub area of the frame contains the small image; otherwise <tt>false</tt>.
+	 */
+	public static boolean subImageContains(final Frame large,
+			final Rectangle sub, final BufferedImage small, final int threshold) {
+		if (threshold == 0) {
+			return new TemplateSet(getTemplate(small)).getFirst(large, sub) != null;
+		}
+		return getTemplate(small).isValid(ImagePyramid.of(large), sub, Template.Metric.SAD, threshold);
+	}
+
+	/**
+	 * Gets whether a sub area of a frame contains an exact match of a smaller image or not.
+	 * @param large The frame to search within.
+	 * @param sub The bounds of the sub area.
+	 * @param small The small image to search for in the frame.
+	 * @return <tt>true</tt> if the sub area of the frame contains the small image; otherwise <tt>false</tt>.
+	 */
+	public static boolean subImageContains(final Frame large,
+			final Rectangle sub, final BufferedImage small) {
+		return subImageContains(large, sub, small, 0);
+	}
+
 }
@@ -0,0 +1,257 @@
+package org.runedream.api.methods;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+
+/**
+ * A summed-area table of a region of a frame, giving sums over any rectangle within the region in constant time.
+ * <br>
+ * Tables are built for what is asked for: the sum of the channel values and the sum of their squares; the amount of
+ * points set in a mask, such as the points matching a color; or the sum of each channel, for mean colors. Building
+ * the table once per frame lets any amount of rectangles, such as the slots of the inventory or the pieces of a grid,
+ * be queried with four lookups each rather than a scan of their area.
+ * <br>
+ * Tables of channel values are cached by frame: every caller passing the same frame to
+ * {@link #of(Frame, Rectangle)} shares one table, as long as each asks for a region within the first.
+ */
+public final class IntegralImage {
+
+	private static volatile IntegralImage last;
+
+	private final long frame;
+	private final int x;
+	private final int y;
+	private final int width;
+	private final int height;
+	private final long[] sums;
+	private final long[] squares;
+	private final int[] counts;
+	private final int[] red;
+	private final int[] green;
+	private final int[] blue;
+
+	/**
+	 * Constructs an IntegralImage of the channel values of a frame, and of their squares.
+	 * @param frame The frame.
+	 */
+	public IntegralImage(final Frame frame) {
+		this(frame, frame.getBounds());
+	}
+
+	/**
+	 * Constructs an IntegralImage of the channel values of a region of a frame, and of their squares.
+	 * @param frame The frame.
+	 * @param bounds The region; clipped to the bounds of the frame.
+	 */
+	public IntegralImage(final Frame frame, final Rectangle bounds) {
+		this(frame.getId(), bounds.intersection(frame.getBounds()), true, false, false);
+		final int stride = width + 1;
+		final int[] pixels = frame.getPixels();
+		for (int row = 0; row < height; row++) {
+			int i = frame.indexOf(x, y + row);
+			long sum = 0, square = 0;
+			final int above = row * stride;
+			final int at = above + stride;
+			for (int col = 0; col < width; col++, i++) {
+				final int p = pixels[i];
+				final int r = (p >> 16) & 0xFF, g = (p >> 8) & 0xFF, b = p & 0xFF;
+				sum += r + g + b;
+				square += r * r + g * g + b * b;
+				sums[at + col + 1] = sums[above + col + 1] + sum;
+				squares[at + col + 1] = squares[above + col + 1] + square;
+			}
+		}
+	}
+
+	/**
+	 * Constructs an IntegralImage of the set points of a mask.
+	 * @param mask The mask.
+	 */
+	public IntegralImage(final BitMask mask) {
+		this(-1, mask.getBounds(), false, true, false);
+		fillCounts(mask);
+	}
+
+	/**
+	 * Constructs an IntegralImage of the points of a region of a frame which have a color matched by a given matcher,
+	 * and optionally of each channel.
+	 * @param frame The frame.
+	 * @param bounds The region; clipped to the bounds of the frame.
+	 * @param matcher The matcher to count the points of; or null to count none.
+	 * @param channels <tt>true</tt> to sum each channel, for mean colors; otherwise <tt>false</tt>.
+	 */
+	public IntegralImage(final Frame frame, final Rectangle bounds, final ColorMatcher matcher, final boolean channels) {
+		this(-1, bounds.intersection(frame.getBounds()), false, matcher != null, channels);
+		if (matcher != null) {
+			fillCounts(ImageUtil.getMask(frame, getBounds(), matcher));
+		}
+		if (channels) {
+			final int stride = width + 1;
+			final int[] pixels = frame.getPixels();
+			for (int row = 0; row < height; row++) {
+				int i = frame.indexOf(x, y + row);
+				int r = 0, g = 0, b = 0;
+				final int above = row * stride;
+				final int at = above + stride;
+				for (int col = 0; col < width; col++, i++) {
+					final int p = pixels[i];
+					r += (p >> 16) & 0xFF;
+					g += (p >> 8) & 0xFF;
+					b += p & 0xFF;
+					red[at + col + 1] = red[above + col + 1] + r;
+					green[at + col + 1] = green[above + col + 1] + g;
+					blue[at + col + 1] = blue[above + col + 1] + b;
+				}
+			}
+		}
+	}
+
+	private IntegralImage(final long frame, final Rectangle area, final boolean values, final boolean counts,
+			final boolean channels) {
+		this.frame = frame;
+		this.x = area.x;
+		this.y = area.y;
+		this.width = Math.max(area.width, 0);
+		this.height = Math.max(area.height, 0);
+		final int size = (width + 1) * (height + 1);
+		this.sums = values ? new long[size] : null;
+		this.squares = values ? new long[size] : null;
+		this.counts = counts ? new int[size] : null;
+		this.red = channels ? new int[size] : null;
+		this.green = channels ? new int[size] : null;
+		this.blue = channels ? new int[size] : null;
+	}
+
+	/**
+	 * Gets the table of the channel values of a region of a frame, building it unless the table last requested was of
+	 * the same frame and covers the region.
+	 * @param frame The frame.
+	 * @param bounds The region; clipped to the bounds of the frame.
+	 * @return The table, covering at least the region.
+	 */
+	public static IntegralImage of(final Frame frame, final Rectangle bounds) {
+		IntegralImage table = last;
+		final Rectangle area = bounds.intersection(frame.getBounds());
+		if (table == null || table.frame != frame.getId() || !table.getBounds().contains(area)) {
+			table = new IntegralImage(frame, area);
+			last = table;
+		}
+		return table;
+	}
+
+	private void fillCounts(final BitMask mask) {
+		final int stride = width + 1;
+		final int words = mask.getWordsPerRow();
+		final long[] bits = mask.getWords();
+		for (int row = 0; row < height; row++) {
+			final int above = row * stride;
+			final int at = above + stride;
+			int count = 0;
+			for (int col = 0; col < width; col++) {
+				count += (int) (bits[row * words + (col >>> 6)] >>> col) & 1;
+				counts[at + col + 1] = counts[above + col + 1] + count;
+			}
+		}
+	}
+
+	/**
+	 * Gets the bounds of the region this table covers.
+	 * @return The bounds.
+	 */
+	public Rectangle getBounds() {
+		return new Rectangle(x, y, width, height);
+	}
+
+	/**
+	 * Gets the sum of the red, green and blue values within a rectangle. The rectangle must lie within the region.
+	 * @param x The x coordinate of the rectangle.
+	 * @param y The y coordinate of the rectangle.
+	 * @param width The width of the rectangle.
+	 * @param height The height of the rectangle.
+	 * @return The sum.
+	 */
+	public long getSum(final int x, final int y, final int width, final int height) {
+		return area(check(sums, "values"), x, y, width, height);
+	}
+
+	/**
+	 * Gets the sum of the squares of the red, green and blue values within a rectangle. The rectangle must lie within
+	 * the region.
+	 * @param x The x coordinate of the rectangle.
+	 * @param y The y coordinate of the rectangle.
+	 * @param width The width of the rectangle.
+	 * @param height The height of the rectangle.
+	 * @return The sum of squares.
+	 */
+	public long getSquareSum(final int x, final int y, final int width, final int height) {
+		return area(check(squares, "values"), x, y, width, height);
+	}
+
+	/**
+	 * Gets the amount of set or matched points within a rectangle.
+	 * @param bounds The rectangle; clipped to the region.
+	 * @return The amount of points.
+	 */
+	public int getCount(final Rectangle bounds) {
+		final int[] counts = check(this.counts, "counts");
+		final Rectangle area = bounds.intersection(getBounds());
+		if (area.isEmpty()) {
+			return 0;
+		}
+		return area(counts, area.x, area.y, area.width, area.height);
+	}
+
+	/**
+	 * Gets the percentage of set or matched points out of all points within a rectangle.
+	 * @param bounds The rectangle; clipped to the region.
+	 * @return The percentage, between 0 and 100; or 0 if the rectangle lies outside of the region.
+	 */
+	public double getConcentration(final Rectangle bounds) {
+		check(counts, "counts");
+		final Rectangle area = bounds.intersection(getBounds());
+		if (area.isEmpty()) {
+			return 0;
+		}
+		return getCount(area) * 100.0 / ((double) area.width * area.height);
+	}
+
+	/**
+	 * Gets the mean color of the points within a rectangle.
+	 * @param bounds The rectangle; clipped to the region.
+	 * @return The mean color; or null if the rectangle lies outside of the region.
+	 */
+	public Color getMeanColor(final Rectangle bounds) {
+		check(red, "channels");
+		final Rectangle area = bounds.intersection(getBounds());
+		if (area.isEmpty()) {
+			return null;
+		}
+		final int points = area.width * area.height;
+		final int r = area(red, area.x, area.y, area.width, area.height);
+		final int g = area(green, area.x, area.y, area.width, area.height);
+		final int b = area(blue, area.x, area.y, area.width, area.height);
+		return new Color(Math.round(r / (float) points), Math.round(g / (float) points), Math.round(b / (float) points));
+	}
+
+	private static <T> T check(final T table, final String name) {
+		if (table == null) {
+			throw new IllegalStateException("No " + name + " table was built");
+		}
+		return table;
+	}
+
+	private long area(final long[] table, final int x, final int y, final int width, final int height) {
+		final int stride = this.width + 1;
+		final int top = (y - this.y) * stride + x - this.x;
+		final int bottom = top + height * stride;
+		return table[bottom + width] - table[bottom] - table[top + width] + table[top];
+	}
+
+	private int area(final int[] table, final int x, final int y, final int width, final int height) {
+		final int stride = this.width + 1;
+		final int top = (y - this.y) * stride + x - this.x;
+		final int bottom = top + height * stride;
+		return table[bottom + width] - table[bottom] - table[top + width] + table[top];
+	}
+
+}
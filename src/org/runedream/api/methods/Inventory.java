@@ -3,16 +3,17 @@ package org.runedream.api.methods;
 import java.awt.Color;
 import java.awt.Point;
 import java.awt.Rectangle;
-import java.awt.image.BufferedImage;
 import java.util.LinkedList;
 import java.util.List;
 
 import org.runedream.api.methods.Game;
 import org.runedream.api.methods.Mouse;
+import org.runedream.api.util.PointBuffer;
 import org.runedream.api.util.Random;
 import org.runedream.api.util.Time;
 import org.runedream.api.wrappers.DTM;
 import org.runedream.api.wrappers.Menu;
+import org.runedream.api.wrappers.PatternIndex;
 import org.runedream.api.wrappers.Tab;
 
 /**
@@ -25,6 +26,7 @@ public final class Inventory {
 	private static int[] path = {0, 4, 8, 12, 16, 20, 24, 1, 5, 9, 13, 17, 21, 25, 2, 6, 10, 14, 18, 22, 26, 3, 7, 11, 15, 19, 23, 27};
 	public static final Rectangle BOUNDS = new Rectangle(545, 206, 192, 260);
 	public static final Color SLOT_BACKGROUND = new Color(63, 53, 44);
+	private static final ColorMatcher SLOT_BACKGROUND_MATCHER = new ColorMatcher(SLOT_BACKGROUND, 20);
 
 	private Inventory() {
 	}
@@ -110,13 +112,20 @@ public final class Inventory {
 		 */
 		public Color[] getColors() {
 			open();
+			return getColors(Game.getFrame(bounds));
+		}
+
+		/**
+		 * Gets the slot's color array within a frame.
+		 * @param frame The frame to read.
+		 * @return the slot's color array.
+		 */
+		public Color[] getColors(final Frame frame) {
 			final List<Color> colors = new LinkedList<Color>();
 			for (int x = bounds.x; x < bounds.x + bounds.width; x++) {
 				for (int y = bounds.y; y < bounds.y + bounds.height; y++) {
-					final Point p = new Point(x, y);
-					if (Game.isPointValid(p)) {
-						final Color color = Game.getColorAt(p);
-						colors.add(color);
+					if (frame.contains(x, y)) {
+						colors.add(frame.getColorAt(x, y));
 					}
 				}
 			}
@@ -131,16 +140,46 @@ public final class Inventory {
 			return !isFull();
 		}
 
+		/**
+		 * Checks if the slot is empty within a frame.
+		 * @param frame The frame to read.
+		 * @return <tt>true</tt> if the slot is empty; otherwise <tt>false</tt>.
+		 */
+		public boolean isEmpty(final Frame frame) {
+			return !isFull(frame);
+		}
+
 		/**
 		 * Checks if the slot contains an item.
 		 * @return <tt>true</tt> if the slot is full; otherwise <tt>false</tt>.
 		 */
 		public boolean isFull() {
 			open();
-			final BufferedImage image = Game.getImage();
-			for (int x = bounds.x; x < bounds.x + bounds.width; x++) {
-				for (int y = bounds.y; y < bounds.y + bounds.height; y++) {
-					if (ColorUtil.getDistance(new Color(image.getRGB(x, y)), SLOT_BACKGROUND) > 20) {
+			return isFull(Game.getFrame(bounds));
+		}
+
+		/**
+		 * Checks if the slot contains an item within a frame.
+		 * @param frame The frame to read.
+		 * @return <tt>true</tt> if the slot is full; otherwise <tt>false</tt>.
+		 */
+		public boolean isFull(final Frame frame) {
+			return isFull(frame, SLOT_BACKGROUND_MATCHER);
+		}
+
+		/**
+		 * Checks if the slot contains an item within a frame, given a matcher of the empty slot background.
+		 * @param frame The frame to read.
+		 * @param background The matcher of the slot background.
+		 * @return <tt>true</tt> if a color not matched by the background matcher was found; otherwise <tt>false</tt>.
+		 */
+		public boolean isFull(final Frame frame, final ColorMatcher background) {
+			final Rectangle area = bounds.intersection(frame.getBounds());
+			final int[] pixels = frame.getPixels();
+			for (int y = area.y; y < area.y + area.height; y++) {
+				int i = frame.indexOf(area.x, y);
+				for (int x = area.x; x < area.x + area.width; x++, i++) {
+					if (!background.matches(pixels[i])) {
 						return true;
 					}
 				}
@@ -202,12 +241,9 @@ public final class Inventory {
 		 */
 		public boolean containsOneOf(final DTM... dtms) {
 			open();
-			for (final DTM dtm : dtms) {
-				if (dtm != null) {
-					final Point[] points = dtm.getAll(getBounds());
-					if (points != null && points.length > 0) {
-						return true;
-					}
+			for (final PointBuffer points : new PatternIndex(withoutNulls(dtms)).getAll(getBounds())) {
+				if (!points.isEmpty()) {
+					return true;
 				}
 			}
 			return false;
@@ -293,9 +329,10 @@ public final class Inventory {
 	 */
 	public static int getCount() {
 		open();
+		final Frame frame = Game.getFrame(BOUNDS);
 		int count = 0;
 		for (final Slot slot : Slot.values()) {
-			if (!slot.isEmpty()) {
+			if (!slot.isEmpty(frame)) {
 				count += 1;
 			}
 		}
@@ -310,13 +347,11 @@ public final class Inventory {
 	 */
 	public static int getCount(final Color color, final int tolerance) {
 		open();
+		final IntegralImage table = new IntegralImage(Game.getFrame(BOUNDS), BOUNDS, new ColorMatcher(color, tolerance), false);
 		int count = 0;
 		for (final Slot slot : Slot.values()) {
-			for (final Color slot_color : slot.getColors()) {
-				if (ColorUtil.getDistance(slot_color, color) <= tolerance) {
-					count++;
-					break;
-				}
+			if (table.getCount(slot.getBounds()) > 0) {
+				count++;
 			}
 		}
 		return count;
@@ -393,11 +428,10 @@ public final class Inventory {
 	 */
 	public static Slot getSlotWithColor(final Color color, final int tolerance) {
 		open();
+		final Frame frame = Game.getFrame(BOUNDS);
 		for (final Slot slot : Slot.values()) {
-			for (final Color slot_color : slot.getColors()) {
-				if (ColorUtil.getDistance(slot_color, color) <= tolerance) {
-					return slot;
-				}
+			if (ImageUtil.containsColor(frame, slot.getBounds(), color, tolerance)) {
+				return slot;
 			}
 		}
 		return null;
@@ -475,15 +509,43 @@ public final class Inventory {
 	 */
 	public static Slot[] getSlots(final DTM... dtms) {
 		open();
+		final PointBuffer[] found = new PatternIndex(withoutNulls(dtms)).getAll(BOUNDS);
 		final LinkedList<Slot> slots = new LinkedList<Slot>();
-		for (Slot slot : Slot.values()) {
-			if (slot.containsOneOf(dtms)) {
+		for (final Slot slot : Slot.values()) {
+			if (contains(slot.getBounds(), found)) {
 				slots.add(slot);
 			}
 		}
 		return slots.toArray(new Slot[slots.size()]);
 	}
 
+	/**
+	 * Checks if any of a set of points lies within bounds.
+	 */
+	private static boolean contains(final Rectangle bounds, final PointBuffer[] found) {
+		for (final PointBuffer points : found) {
+			for (int i = 0; i < points.size(); i++) {
+				if (bounds.contains(points.getX(i), points.getY(i))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Leaves out the null elements of an array of DTMs.
+	 */
+	private static DTM[] withoutNulls(final DTM[] dtms) {
+		final List<DTM> list = new LinkedList<DTM>();
+		for (final DTM dtm : dtms) {
+			if (dtm != null) {
+				list.add(dtm);
+			}
+		}
+		return list.toArray(new DTM[list.size()]);
+	}
+
 	/**
 	 * Gets the first slot with one of a set of given DTMs valid within it
 	 * @param dtms The DTMs to search for.
@@ -0,0 +1,255 @@
+package org.runedream.api.methods;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.runedream.api.wrappers.DTM;
+
+/**
+ * Remembers where searches last found what they were looking for, and looks there first the next time.
+ * <br>
+ * Objects polled for every loop, such as the destination flag of the minimap, rarely move more than a few pixels
+ * between frames. A lookup first checks the last location found for its key, then searches windows of growing size
+ * around it, nearest-first, and only searches all of its bounds if none of them holds a match. Each step captures
+ * only the part of the game image it searches.
+ * <br>
+ * Lookups are counted by the step which answered them, to judge how well the memory pays off.
+ * <br>
+ * The cache is opt-in: only {@link Walking#getFlagLocation()}, {@link DTM#getCached(Rectangle)} and
+ * {@link org.runedream.api.wrappers.Entity#findPoint()} look things up through it. Other DTM and color searches of the
+ * API search their whole bounds every time, as they did before; scripts polling for a color may look it up here
+ * instead.
+ */
+public final class LocationCache {
+
+	/**
+	 * The sizes of the windows searched around the last location by default, as distances from it in pixels.
+	 */
+	private static final int[] WINDOWS = { 4, 16, 48 };
+	private static final int MAX_KEYS = 256;
+
+	private static final LocationCache DEFAULT = new LocationCache();
+
+	private final int[] windows;
+	private final Map<Object, Point> locations = new LinkedHashMap<Object, Point>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Object, Point> eldest) {
+			return size() > MAX_KEYS;
+		}
+	};
+	private final AtomicLong lookups = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong nearbyHits = new AtomicLong();
+	private final AtomicLong scans = new AtomicLong();
+
+	/**
+	 * A search for the location of something within an area.
+	 */
+	public static interface Locator {
+
+		/**
+		 * Searches an area.
+		 * @param area The area to search within.
+		 * @param near The point to search nearest to; or null for the search of the whole bounds of a lookup, which
+		 * may pick any point.
+		 * @return The location found; or null if none.
+		 */
+		public Point locate(Rectangle area, Point near);
+	}
+
+	/**
+	 * Constructs a LocationCache searching the default windows around last locations.
+	 */
+	public LocationCache() {
+		this(WINDOWS);
+	}
+
+	/**
+	 * Constructs a LocationCache.
+	 * @param windows The sizes of the windows to search around last locations, as distances from them in pixels, in
+	 * the order to search them in.
+	 */
+	public LocationCache(final int... windows) {
+		this.windows = windows.clone();
+	}
+
+	/**
+	 * Gets the cache shared by the methods of the API.
+	 * @return The shared cache.
+	 */
+	public static LocationCache getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Looks up the location of something within bounds, searching around its last location first.
+	 * @param key The key to remember the location by, such as the DTM, color or entity searched for.
+	 * @param bounds The bounds to search within.
+	 * @param locator The search.
+	 * @return The location found; or null if none.
+	 */
+	public Point find(final Object key, final Rectangle bounds, final Locator locator) {
+		lookups.incrementAndGet();
+		final Point last = getLocation(key);
+		if (last != null && bounds.contains(last)) {
+			Point found = locator.locate(new Rectangle(last.x, last.y, 1, 1), last);
+			if (found != null) {
+				hits.incrementAndGet();
+				return remember(key, found);
+			}
+			for (final int window : windows) {
+				final Rectangle area = new Rectangle(last.x - window, last.y - window, window * 2 + 1, window * 2 + 1)
+						.intersection(bounds);
+				found = locator.locate(area, last);
+				if (found != null) {
+					nearbyHits.incrementAndGet();
+					return remember(key, found);
+				}
+				if (area.equals(bounds)) {
+					forget(key);
+					return null;
+				}
+			}
+		}
+		scans.incrementAndGet();
+		final Point found = locator.locate(bounds, null);
+		if (found == null) {
+			forget(key);
+			return null;
+		}
+		return remember(key, found);
+	}
+
+	/**
+	 * Looks up the location of a DTM within bounds, searching around its last location first. The whole bounds are
+	 * searched for the first valid location point.
+	 * @param dtm The DTM.
+	 * @param bounds The bounds to search within.
+	 * @return A point where the DTM is valid; or null if none.
+	 */
+	public Point find(final DTM dtm, final Rectangle bounds) {
+		return find(dtm, bounds, new Locator() {
+			public Point locate(final Rectangle area, final Point near) {
+				return near != null ? dtm.getNearest(near, area) : dtm.getFirst(area);
+			}
+		});
+	}
+
+	/**
+	 * Looks up the location of a color within bounds, searching around its last location first. The whole bounds are
+	 * searched for the first matching point in row-major order.
+	 * @param matcher The matcher of the color; the key its location is remembered by, shared by equal matchers.
+	 * @param bounds The bounds to search within.
+	 * @return A matching point; or null if none.
+	 */
+	public Point find(final ColorMatcher matcher, final Rectangle bounds) {
+		return find(matcher, bounds, new Locator() {
+			public Point locate(final Rectangle area, final Point near) {
+				final Frame frame = Game.getFrame(area);
+				return near != null ? ImageUtil.getNearestPointWithColor(frame, area, near, matcher)
+						: ImageUtil.getFirstPointWithColor(frame, area, matcher);
+			}
+		});
+	}
+
+	/**
+	 * Looks up the location of a color within bounds, searching around its last location first. The whole bounds are
+	 * searched for the first matching point in row-major order.
+	 * @param color The color; along with the tolerance, the key its location is remembered by, shared with lookups of
+	 * an equal {@link ColorMatcher}.
+	 * @param tolerance The tolerance to match within.
+	 * @param bounds The bounds to search within.
+	 * @return A matching point; or null if none.
+	 */
+	public Point find(final Color color, final int tolerance, final Rectangle bounds) {
+		return find(new ColorMatcher(color, tolerance), bounds);
+	}
+
+	/**
+	 * Gets the last location found for a key.
+	 * @param key The key.
+	 * @return The last location; or null if none is remembered.
+	 */
+	public synchronized Point getLocation(final Object key) {
+		final Point location = locations.get(key);
+		return location != null ? new Point(location) : null;
+	}
+
+	private synchronized Point remember(final Object key, final Point location) {
+		locations.put(key, new Point(location));
+		return location;
+	}
+
+	/**
+	 * Forgets the last location found for a key.
+	 * @param key The key.
+	 */
+	public synchronized void forget(final Object key) {
+		locations.remove(key);
+	}
+
+	/**
+	 * Forgets every location, and resets the counters.
+	 */
+	public synchronized void clear() {
+		locations.clear();
+		lookups.set(0);
+		hits.set(0);
+		nearbyHits.set(0);
+		scans.set(0);
+	}
+
+	/**
+	 * Gets the amount of lookups made.
+	 * @return The amount of lookups.
+	 */
+	public long getLookups() {
+		return lookups.get();
+	}
+
+	/**
+	 * Gets the amount of lookups answered by the last location found.
+	 * @return The amount of hits.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the amount of lookups answered by a window around the last location found.
+	 * @return The amount of nearby hits.
+	 */
+	public long getNearbyHits() {
+		return nearbyHits.get();
+	}
+
+	/**
+	 * Gets the amount of lookups which searched their whole bounds.
+	 * @return The amount of scans.
+	 */
+	public long getScans() {
+		return scans.get();
+	}
+
+	/**
+	 * Gets the share of lookups answered without searching their whole bounds.
+	 * @return The hit rate, between 0 and 1; or 0 if no lookups were made.
+	 */
+	public double getHitRate() {
+		final long lookups = this.lookups.get();
+		return lookups == 0 ? 0 : (double) (hits.get() + nearbyHits.get()) / lookups;
+	}
+
+	@Override
+	public String toString() {
+		return "LocationCache[lookups=" + lookups.get() + ",hits=" + hits.get() + ",nearbyHits=" + nearbyHits.get()
+				+ ",scans=" + scans.get() + "]";
+	}
+
+}
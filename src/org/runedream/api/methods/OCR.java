@@ -4,11 +4,22 @@ import java.awt.Color;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
 
 import javax.imageio.ImageIO;
 
@@ -23,7 +34,14 @@ import org.runedream.api.util.Log;
  */
 public final class OCR {
 
-	private static final Font[][] ALL_LETTERS = new Font[FontType.values().length][62];
+	private static final Font[][] ALL_LETTERS = new Font[FontType.values().length][];
+	private static final long[] STAMPS = new long[FontType.values().length];
+	private static final LetterIndex[] INDEXES = new LetterIndex[FontType.values().length];
+	private static final int TOLERANCE = 40;
+	private static final String CACHE_NAME = "fonts.bin";
+
+	private static FontCache cache;
+	private static LetterIndex combined;
 	
 	private OCR() {
 	}
@@ -41,22 +59,71 @@ public final class OCR {
 		}
 	}
 
+	/**
+	 * A letter of a font, compiled into a bitmask per row: bit <tt>x</tt> of <tt>good[y]</tt> is set where the letter
+	 * has a point of the text color, and of <tt>bad[y]</tt> where it has none.
+	 */
 	private static class Font {
 
-		private Point[] goodPts;
-		private Point[] badPts;
+		private long[] good;
+		private long[] bad;
 		private char letter;
 		private Rectangle letBox;
+		private Point anchor;
 
-		public Font(final ArrayList<Point> goodpoints, final ArrayList<Point> badpoints,
-				final char letter, final Rectangle letBox) {
-			goodPts = new Point[goodpoints.size()];
-			goodPts = goodpoints.toArray(goodPts);
-			badPts = new Point[badpoints.size()];
-			badPts = badpoints.toArray(goodPts);
+		public Font(final long[] good, final char letter, final Rectangle letBox) {
+			this.good = good;
+			this.bad = new long[good.length];
+			final long row = letBox.width == 64 ? -1L : (1L << letBox.width) - 1;
+			for (int y = 0; y < good.length; y++) {
+				bad[y] = ~good[y] & row;
+				if (anchor == null && good[y] != 0) {
+					anchor = new Point(Long.numberOfTrailingZeros(good[y]), y);
+				}
+			}
 			this.letBox = letBox;
 			this.letter = letter;
 		}
+
+		/**
+		 * Checks the letter against a mask of the points of the text color.
+		 * @param mask The mask.
+		 * @param x The x coordinate of the letter.
+		 * @param y The y coordinate of the letter.
+		 * @return <tt>true</tt> if every good point is set and every bad point is cleared; otherwise <tt>false</tt>.
+		 */
+		private boolean matches(final BitMask mask, final int x, final int y) {
+			for (int row = 0; row < good.length; row++) {
+				final long bits = mask.getRow(x, y + row, letBox.width);
+				if ((bits & good[row]) != good[row] || (bits & bad[row]) != 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Checks the letter against the points of a frame within the tolerance of a text color.
+		 * @param frame The frame.
+		 * @param x The x coordinate of the letter.
+		 * @param y The y coordinate of the letter.
+		 * @param rgb The text color.
+		 * @return <tt>true</tt> if every good point is of the text color and no bad point is; otherwise <tt>false</tt>.
+		 */
+		private boolean matches(final Frame frame, final int x, final int y, final int rgb) {
+			final int r = (rgb >> 16) & 0xFF, g = (rgb >> 8) & 0xFF, b = rgb & 0xFF;
+			for (int row = 0; row < good.length; row++) {
+				for (int col = 0; col < letBox.width; col++) {
+					final int p = frame.getRGB(x + col, y + row);
+					final boolean set = Math.abs(((p >> 16) & 0xFF) - r) + Math.abs(((p >> 8) & 0xFF) - g)
+							+ Math.abs((p & 0xFF) - b) < TOLERANCE;
+					if (set != ((good[row] >>> col & 1L) != 0)) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
 	}
 
 	/**
@@ -87,9 +154,347 @@ public final class OCR {
 		}
 	}
 
-	static {
-		for (int i = 0; i < ALL_LETTERS.length; i++) {
-			ALL_LETTERS[i] = grabFontSet(ALL_LETTERS[i], FontType.values()[i].getName());
+	/**
+	 * A binary cache of the parsed letters of every font, so the bitmaps of a font are only decoded when they change.
+	 * <br>
+	 * The file starts with a header: a magic number, the version of the format, the amount of fonts, then for each
+	 * font a stamp of its bitmaps and the offset, length and CRC-32 checksum of its section, and last a checksum of the
+	 * header. A section holds the amount of letters, then for each letter its character, width, height and a bitmask
+	 * per row. The file is mapped into memory, and each font is read from it the first time it is used.
+	 */
+	private static class FontCache {
+
+		private static final int MAGIC = 0x52444643;
+		private static final int VERSION = 1;
+		private static final int HEADER = 12;
+		private static final int ENTRY = 20;
+
+		private final ByteBuffer buffer;
+
+		private FontCache(final File file) {
+			this.buffer = map(file);
+		}
+
+		private static ByteBuffer map(final File file) {
+			if (!file.isFile()) {
+				return null;
+			}
+			RandomAccessFile in = null;
+			try {
+				in = new RandomAccessFile(file, "r");
+				final ByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+				final int fonts = FontType.values().length;
+				final int header = HEADER + fonts * ENTRY;
+				if (buffer.capacity() < header + 4 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+						|| buffer.getInt(8) != fonts || buffer.getInt(header) != checksum(buffer, 0, header)) {
+					return null;
+				}
+				return buffer;
+			} catch (final IOException e) {
+				Log.log("Failed to map the font cache");
+				return null;
+			} finally {
+				close(in);
+			}
+		}
+
+		/**
+		 * Reads the letters of a font.
+		 * @param type The font.
+		 * @param stamp The stamp of the bitmaps of the font.
+		 * @return The letters; or null if the cache holds no font of the given stamp, or its section is corrupt.
+		 */
+		private Font[] read(final FontType type, final long stamp) {
+			if (buffer == null) {
+				return null;
+			}
+			final int entry = HEADER + type.ordinal() * ENTRY;
+			final int offset = buffer.getInt(entry + 8), length = buffer.getInt(entry + 12);
+			if (buffer.getLong(entry) != stamp || offset < 0 || length < 2 || length > buffer.capacity() - offset
+					|| buffer.getInt(entry + 16) != checksum(buffer, offset, length)) {
+				return null;
+			}
+			final ByteBuffer section = buffer.duplicate();
+			section.position(offset);
+			section.limit(offset + length);
+			try {
+				final Font[] letters = new Font[section.getShort()];
+				for (int i = 0; i < letters.length; i++) {
+					final char letter = section.getChar();
+					final int width = section.get() & 0xFF, height = section.get() & 0xFF;
+					final long[] good = new long[height];
+					for (int y = 0; y < height; y++) {
+						good[y] = section.getLong();
+					}
+					letters[i] = new Font(good, letter, new Rectangle(width, height));
+				}
+				return letters;
+			} catch (final BufferUnderflowException e) {
+				return null;
+			}
+		}
+
+		/**
+		 * Writes the letters of every font to a cache file, replacing it.
+		 * @param file The file.
+		 * @param fonts The letters of each font.
+		 * @param stamps The stamp of the bitmaps of each font.
+		 */
+		private static void write(final File file, final Font[][] fonts, final long[] stamps) {
+			final ByteArrayOutputStream sections = new ByteArrayOutputStream();
+			final int[] offsets = new int[fonts.length], lengths = new int[fonts.length];
+			final int header = HEADER + fonts.length * ENTRY + 4;
+			File temp = null;
+			try {
+				final DataOutputStream out = new DataOutputStream(sections);
+				for (int i = 0; i < fonts.length; i++) {
+					offsets[i] = header + out.size();
+					out.writeShort(fonts[i].length);
+					for (final Font font : fonts[i]) {
+						out.writeChar(font.letter);
+						out.writeByte(font.letBox.width);
+						out.writeByte(font.letBox.height);
+						for (final long row : font.good) {
+							out.writeLong(row);
+						}
+					}
+					lengths[i] = header + out.size() - offsets[i];
+				}
+				final ByteBuffer buffer = ByteBuffer.allocate(header + out.size());
+				buffer.putInt(MAGIC).putInt(VERSION).putInt(fonts.length);
+				buffer.position(header);
+				buffer.put(sections.toByteArray());
+				for (int i = 0; i < fonts.length; i++) {
+					buffer.position(HEADER + i * ENTRY);
+					buffer.putLong(stamps[i]).putInt(offsets[i]).putInt(lengths[i]);
+					buffer.putInt(checksum(buffer, offsets[i], lengths[i]));
+				}
+				buffer.putInt(header - 4, checksum(buffer, 0, header - 4));
+				// written aside and renamed, so other clients never map a partly written file
+				temp = File.createTempFile(CACHE_NAME, null, file.getParentFile());
+				final FileOutputStream stream = new FileOutputStream(temp);
+				try {
+					stream.write(buffer.array());
+				} finally {
+					close(stream);
+				}
+				if (!temp.renameTo(file) && (!file.delete() || !temp.renameTo(file))) {
+					throw new IOException("Failed to replace " + file);
+				}
+			} catch (final IOException e) {
+				Log.log("Failed to write the font cache");
+				if (temp != null) {
+					temp.delete();
+				}
+			}
+		}
+
+		private static int checksum(final ByteBuffer buffer, final int offset, final int length) {
+			final byte[] bytes = new byte[length];
+			final ByteBuffer view = buffer.duplicate();
+			view.position(offset);
+			view.get(bytes);
+			final CRC32 crc = new CRC32();
+			crc.update(bytes);
+			return (int) crc.getValue();
+		}
+
+		/**
+		 * Gets a stamp of the bitmaps of a font, which changes when any of them is added, removed or modified.
+		 * @param type The font.
+		 * @return The stamp.
+		 */
+		private static long getStamp(final FontType type) {
+			final File[] files = new File(getFontsDirectory(), type.getName()).listFiles();
+			long stamp = 1;
+			if (files != null) {
+				Arrays.sort(files);
+				for (final File file : files) {
+					if (file.getName().endsWith(".bmp")) {
+						stamp = stamp * 31 + file.getName().hashCode();
+						stamp = stamp * 31 + file.length();
+						stamp = stamp * 31 + file.lastModified();
+					}
+				}
+			}
+			return stamp;
+		}
+
+		private static void close(final Closeable closeable) {
+			if (closeable != null) {
+				try {
+					closeable.close();
+				} catch (final IOException ignored) {
+				}
+			}
+		}
+	}
+
+	private static File getFontsDirectory() {
+		return new File(Environment.getStorageDirectoryPath() + File.separator + "Cache" + File.separator + "Fonts");
+	}
+
+	/**
+	 * Gets the letters of a font, loading them the first time.
+	 * <br>
+	 * Letters are read from the font cache. If it is missing, or the bitmaps of the font changed since it was written,
+	 * the bitmaps of every such font are parsed and the cache is written anew.
+	 * @param type The font.
+	 * @return The letters.
+	 */
+	private static synchronized Font[] getLetters(final FontType type) {
+		final int i = type.ordinal();
+		if (ALL_LETTERS[i] == null) {
+			if (cache == null) {
+				cache = new FontCache(new File(getFontsDirectory(), CACHE_NAME));
+			}
+			STAMPS[i] = FontCache.getStamp(type);
+			ALL_LETTERS[i] = cache.read(type, STAMPS[i]);
+			if (ALL_LETTERS[i] == null) {
+				final FontType[] types = FontType.values();
+				for (int j = 0; j < types.length; j++) {
+					if (j != i && ALL_LETTERS[j] == null) {
+						STAMPS[j] = FontCache.getStamp(types[j]);
+						ALL_LETTERS[j] = cache.read(types[j], STAMPS[j]);
+					}
+					if (ALL_LETTERS[j] == null) {
+						ALL_LETTERS[j] = grabFontSet(new Font[62], types[j].getName());
+					}
+				}
+				FontCache.write(new File(getFontsDirectory(), CACHE_NAME), ALL_LETTERS, STAMPS);
+			}
+		}
+		return ALL_LETTERS[i];
+	}
+
+	/**
+	 * Gets the index of the letters of a font, or of every font, building it the first time.
+	 * @param type The font; or null for every font.
+	 * @return The index.
+	 */
+	private static synchronized LetterIndex getIndex(final FontType type) {
+		final FontType[] types = FontType.values();
+		if (type == null) {
+			if (combined == null) {
+				for (final FontType t : types) {
+					getLetters(t);
+				}
+				combined = new LetterIndex(ALL_LETTERS);
+			}
+			return combined;
+		}
+		final int i = type.ordinal();
+		if (INDEXES[i] == null) {
+			final Font[][] fonts = new Font[types.length][];
+			Arrays.fill(fonts, new Font[0]);
+			fonts[i] = getLetters(type);
+			INDEXES[i] = new LetterIndex(fonts);
+		}
+		return INDEXES[i];
+	}
+
+	/**
+	 * An index of the letters of every font by the points around their anchor, their first point of the text color.
+	 * <br>
+	 * Each letter expects the points at a few offsets from its anchor to be of the text color or not, for the offsets
+	 * within its box. Letters are grouped by which offsets lie within their box, and by the points they expect there,
+	 * so a position is only checked against the letters agreeing with the points around it, rather than every letter
+	 * of every font.
+	 */
+	private static class LetterIndex {
+
+		private static final int[] DX = { -1, 1, 2, 3, -1, 0, 1, 2, -1, 0, 1, 2, -1, 0, 1, 2 };
+		private static final int[] DY = { 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3 };
+
+		private final int[] groups;
+		private final int[][] signatures;
+		private final int[][][] letters;
+
+		private LetterIndex(final Font[][] fonts) {
+			final TreeMap<Integer, TreeMap<Integer, ArrayList<Integer>>> index =
+					new TreeMap<Integer, TreeMap<Integer, ArrayList<Integer>>>();
+			for (int i = 0; i < fonts.length; i++) {
+				for (int j = 0; j < fonts[i].length; j++) {
+					final Font font = fonts[i][j];
+					int group = 0, signature = 0;
+					for (int k = 0; k < DX.length; k++) {
+						final int x = font.anchor.x + DX[k], y = font.anchor.y + DY[k];
+						if (x >= 0 && y >= 0 && x < font.letBox.width && y < font.letBox.height) {
+							group |= 1 << k;
+							if ((font.good[y] >>> x & 1L) != 0) {
+								signature |= 1 << k;
+							}
+						}
+					}
+					if (!index.containsKey(group)) {
+						index.put(group, new TreeMap<Integer, ArrayList<Integer>>());
+					}
+					if (!index.get(group).containsKey(signature)) {
+						index.get(group).put(signature, new ArrayList<Integer>());
+					}
+					index.get(group).get(signature).add(i << 8 | j);
+				}
+			}
+			groups = new int[index.size()];
+			signatures = new int[index.size()][];
+			letters = new int[index.size()][][];
+			int g = 0;
+			for (final Integer group : index.keySet()) {
+				final TreeMap<Integer, ArrayList<Integer>> bySignature = index.get(group);
+				groups[g] = group;
+				signatures[g] = new int[bySignature.size()];
+				letters[g] = new int[bySignature.size()][];
+				int s = 0;
+				for (final Integer signature : bySignature.keySet()) {
+					final ArrayList<Integer> list = bySignature.get(signature);
+					signatures[g][s] = signature;
+					letters[g][s] = new int[list.size()];
+					for (int k = 0; k < list.size(); k++) {
+						letters[g][s][k] = list.get(k);
+					}
+					s++;
+				}
+				g++;
+			}
+		}
+
+		/**
+		 * Gets the letters which could be anchored at a point. Offsets outside of the rectangle searched are taken as
+		 * not of the text color; a letter with a box reaching them is ruled out by the rectangle anyway.
+		 * @param frame The frame.
+		 * @param rec The rectangle searched within.
+		 * @param x The x coordinate of the point.
+		 * @param y The y coordinate of the point.
+		 * @param rgb The text color.
+		 * @param candidates The array to store the letters in, as the index of the font shifted left by 8 bits or'ed
+		 * with the index of the letter; of at least as many elements as there are letters.
+		 * @return The amount of letters stored, in order of font and letter.
+		 */
+		private int getCandidates(final Frame frame, final Rectangle rec, final int x, final int y, final int rgb,
+				final int[] candidates) {
+			final int r = (rgb >> 16) & 0xFF, g = (rgb >> 8) & 0xFF, b = rgb & 0xFF;
+			int observed = 0;
+			for (int k = 0; k < DX.length; k++) {
+				final int px = x + DX[k], py = y + DY[k];
+				if (rec.contains(px, py)) {
+					final int p = frame.getRGB(px, py);
+					if (Math.abs(((p >> 16) & 0xFF) - r) + Math.abs(((p >> 8) & 0xFF) - g) + Math.abs((p & 0xFF) - b) < TOLERANCE) {
+						observed |= 1 << k;
+					}
+				}
+			}
+			int amount = 0;
+			for (int i = 0; i < groups.length; i++) {
+				final int s = Arrays.binarySearch(signatures[i], observed & groups[i]);
+				if (s >= 0) {
+					System.arraycopy(letters[i][s], 0, candidates, amount, letters[i][s].length);
+					amount += letters[i][s].length;
+				}
+			}
+			if (groups.length > 1) {
+				Arrays.sort(candidates, 0, amount);
+			}
+			return amount;
 		}
 	}
 
@@ -109,7 +514,7 @@ public final class OCR {
 	 * @return The text found within the rectangle.
 	 */
 	public static String findString(final Rectangle rec, final Color fontC, final FontType font) {
-		return findString(fontC, rec, ALL_LETTERS[font.ordinal()], false);
+		return findString(Game.getFrame(rec), rec, fontC, font);
 	}
 
 	/**
@@ -121,7 +526,7 @@ public final class OCR {
 	 * @return The text found within the rectangle.
 	 */
 	public static String findString(final Rectangle rec, final Color fontC) {
-		return findString(fontC, rec, null, false);
+		return findString(Game.getFrame(rec), rec, fontC);
 	}
 
 	/**
@@ -135,7 +540,7 @@ public final class OCR {
 	 * @return The text found within the rectangle.
 	 */
 	public static String findString(final Rectangle rec, final Color fontC, final FontType font, final boolean multiColorText) {
-		return findString(fontC, rec, ALL_LETTERS[font.ordinal()], multiColorText);
+		return findString(Game.getFrame(rec), rec, fontC, font, multiColorText);
 	}
 
 	/**
@@ -148,61 +553,118 @@ public final class OCR {
 	 * @return The text found within the rectangle.
 	 */
 	public static String findString(final Rectangle rec, final Color fontC, final boolean multiColorText) {
-		return findString(fontC, rec, null, multiColorText);
+		return findString(Game.getFrame(rec), rec, fontC, multiColorText);
+	}
+
+	/**
+	 * Finds text within a rectangle of a frame of the specified font.
+	 * @param frame The frame to read.
+	 * @param rec The rectangle to search within.
+	 * @param fontC The color of the text inside of the rectangle; or null to search for any color.
+	 * @param curfont The font to find a string of.
+	 * @return The text found within the rectangle.
+	 */
+	public static String findString(final Frame frame, final Rectangle rec, final Color fontC, final FontType font) {
+		return findString(frame, fontC, rec, font, false);
+	}
+
+	/**
+	 * Finds text within a rectangle of a frame of any supported font.
+	 * @param frame The frame to read.
+	 * @param rec The rectangle to search within.
+	 * @param fontC The color of the text inside of the rectangle; or null to search for any color.
+	 * @return The text found within the rectangle.
+	 */
+	public static String findString(final Frame frame, final Rectangle rec, final Color fontC) {
+		return findString(frame, fontC, rec, null, false);
+	}
+
+	/**
+	 * Finds text within a rectangle of a frame of the specified font.
+	 * @param frame The frame to read.
+	 * @param rec The rectangle to search within.
+	 * @param fontC The color of the text inside of the rectangle; or null to search for any color.
+	 * @param curfont The font to find a string of.
+	 * @param multiColorText <tt>true</tt> if the text should be detected in multiple colors; otherwise <tt>false</tt>.
+	 * @return The text found within the rectangle.
+	 */
+	public static String findString(final Frame frame, final Rectangle rec, final Color fontC,
+			final FontType font, final boolean multiColorText) {
+		return findString(frame, fontC, rec, font, multiColorText);
+	}
+
+	/**
+	 * Finds text within a rectangle of a frame of any supported font.
+	 * @param frame The frame to read.
+	 * @param rec The rectangle to search within.
+	 * @param fontC The color of the text inside of the rectangle; or null to search for any color.
+	 * @param multiColorText <tt>true</tt> if the text should be detected in multiple colors; otherwise <tt>false</tt>.
+	 * @return The text found within the rectangle.
+	 */
+	public static String findString(final Frame frame, final Rectangle rec, final Color fontC, final boolean multiColorText) {
+		return findString(frame, fontC, rec, null, multiColorText);
 	}
 
 	/**
 	 * Finds text within a rectangle.
 	 * <br>
 	 * To optimize performance, minimize the bounds of the rectangle, define the color, and define the font.
+	 * @param frame The frame to read.
 	 * @param fontC The color of the text inside of the rectangle; or null to search for any color.
 	 * @param rec The rectangle to search within.
 	 * @param font The font type to search for; or null to search for all font types
 	 * @param multiColorText <tt>true</tt> if the text should be detected in multiple colors; otherwise <tt>false</tt>.
 	 * @return The text found within the rectangle.
 	 */
-	private static String findString(Color fontC, final Rectangle rec, final Font[] font, final boolean multiColorText) {
+	private static String findString(final Frame frame, Color fontC, final Rectangle rec, final FontType font, final boolean multiColorText) {
 		ArrayList<Letter> nums = new ArrayList<Letter>();
-		Font[] foundFont = font;
+		int foundFont = font != null ? font.ordinal() : -1;
+		final LetterIndex index = getIndex(font);
+		final int[] candidates = new int[ALL_LETTERS.length << 8];
+		// the points of the text color once it is known, against which a letter is checked with a few operations per row
+		BitMask mask = null;
+		Rectangle masked = null;
 		for (int y = rec.y; y < rec.y + rec.height; y++) {
 			M1: for (int x = rec.x; x < rec.x + rec.width; x++) {
-				Color c = Game.getColorAt(x, y);
-				if (fontC != null && !fontC.equals(c)) {
-					continue;
+				if (mask != null && masked.equals(rec)) {
+					// a point of the text color is set in the mask, so the points between set ones are skipped
+					x = mask.nextSet(x, y);
+					if (x == -1) {
+						break;
+					}
 				}
-				for (int i = 0; i < ALL_LETTERS.length; i++) {
-					Font[] curFont = ALL_LETTERS[i];
-					if (foundFont != null) {
-						curFont = foundFont;
+				final int c = frame.getRGB(x, y) | 0xFF000000;
+				if (fontC != null) {
+					if (fontC.getRGB() != c) {
+						continue;
 					}
-					M2: for (int j = 0; j < curFont.length; j++) {
-						final Rectangle loc = new Rectangle(x - curFont[j].goodPts[0].x,
-								y - curFont[j].goodPts[0].y, curFont[j].letBox.width, curFont[j].letBox.height);
-						if (!rec.contains(loc)) {
-							continue;
-						}
-						for (int k = 0; k < curFont[j].goodPts.length; k++) {
-							if (!checkColor(Game.getColorAt(loc.x + curFont[j].goodPts[k].x,
-									loc.y + curFont[j].goodPts[k].y), c, 40)) {
-								continue M2;
-							}
-						}
-						for (int k = 0; k < curFont[j].badPts.length; k++) {
-							if (checkColor(Game.getColorAt(loc.x + curFont[j].badPts[k].x,
-									loc.y + curFont[j].badPts[k].y), c, 40)) {
-								continue M2;
-							}
-						}
-						nums.add(new Letter(curFont[j].letter, loc.x, loc.x + curFont[j].letBox.width));
-						foundFont = curFont;
-						if (!multiColorText) {
-							fontC = c;
-						}
-						continue M1;
+					if (mask == null) {
+						mask = ImageUtil.getMask(frame, rec, new ColorMatcher(fontC, TOLERANCE - 1, ColorMatcher.Metric.SUM));
+						masked = mask.getBounds();
 					}
-					if (foundFont != null) {
-						break;
+				}
+				final int amount = index.getCandidates(frame, rec, x, y, c, candidates);
+				for (int k = 0; k < amount; k++) {
+					final int i = candidates[k] >>> 8;
+					if (foundFont != -1 && i != foundFont) {
+						continue;
+					}
+					final Font letter = ALL_LETTERS[i][candidates[k] & 0xFF];
+					final int locX = x - letter.anchor.x, locY = y - letter.anchor.y;
+					final int width = letter.letBox.width, height = letter.letBox.height;
+					if (!rec.contains(locX, locY, width, height)) {
+						continue;
+					}
+					if (mask != null && masked.contains(locX, locY, width, height) ? !letter.matches(mask, locX, locY)
+							: !letter.matches(frame, locX, locY, c)) {
+						continue;
+					}
+					nums.add(new Letter(letter.letter, locX, locX + width));
+					foundFont = i;
+					if (!multiColorText && fontC == null) {
+						fontC = new Color(c);
 					}
+					continue M1;
 				}
 			}
 		}
@@ -214,7 +676,16 @@ public final class OCR {
 	 * @return The game uptext.
 	 */
 	public static String getUpText() {
-		return UpTextOCR.getUpText();
+		return getUpText(Game.getFrame(UpTextOCR.BOUNDS));
+	}
+
+	/**
+	 * Gets the game uptext (text in the top left corner) of a frame.
+	 * @param frame The frame to read.
+	 * @return The game uptext.
+	 */
+	public static String getUpText(final Frame frame) {
+		return UpTextOCR.getUpText(frame);
 	}
 	
     /**
@@ -223,7 +694,17 @@ public final class OCR {
      * @return <tt>true</tt> if string found; otherwise <tt>false</tt>.
      */
     public static boolean upTextContains(final String string) {
-         final String upText = getUpText();
+         return upTextContains(Game.getFrame(UpTextOCR.BOUNDS), string);
+    }
+
+    /**
+     * Checks if the uptext of a frame is valid and contains a given string.
+     * @param frame The frame to read.
+     * @param string The string to check for.
+     * @return <tt>true</tt> if string found; otherwise <tt>false</tt>.
+     */
+    public static boolean upTextContains(final Frame frame, final String string) {
+         final String upText = getUpText(frame);
          return upText != null ? upText.contains(string) : false;
     }
 
@@ -233,7 +714,17 @@ public final class OCR {
      * @return <tt>true</tt> if at least one of strings found; otherwise <tt>false</tt>.
      */
     public static boolean upTextContainsOneOf(final String... strings) {
-         final String upText = getUpText();
+         return upTextContainsOneOf(Game.getFrame(UpTextOCR.BOUNDS), strings);
+    }
+
+    /**
+     * Checks if the uptext of a frame is valid and contains one of given strings.
+     * @param frame The frame to read.
+     * @param strings The strings to check for.
+     * @return <tt>true</tt> if at least one of strings found; otherwise <tt>false</tt>.
+     */
+    public static boolean upTextContainsOneOf(final Frame frame, final String... strings) {
+         final String upText = getUpText(frame);
          if (upText != null) {
              for (final String string : strings) {
                  if (upText.contains(string)) {
@@ -250,7 +741,17 @@ public final class OCR {
      * @return <tt>true</tt> if all strings found; otherwise <tt>false</tt>.
      */
     public static boolean upTextContainsAll(final String... strings) {
-         final String upText = getUpText();
+         return upTextContainsAll(Game.getFrame(UpTextOCR.BOUNDS), strings);
+    }
+
+    /**
+     * Checks if the uptext of a frame is valid and contains all of given strings.
+     * @param frame The frame to read.
+     * @param strings The strings to check for.
+     * @return <tt>true</tt> if all strings found; otherwise <tt>false</tt>.
+     */
+    public static boolean upTextContainsAll(final Frame frame, final String... strings) {
+         final String upText = getUpText(frame);
          if (upText != null) {
              for (final String string : strings) {
                   if (!upText.contains(string)) {
@@ -270,8 +771,7 @@ public final class OCR {
 	 */
 	private static Font[] grabFontSet(final Font[] fontset, final String fontname) {
 		int cnt = 0;
-		final String base = Environment.getStorageDirectoryPath() + File.separator
-				+ "Cache" + File.separator + "Fonts" + File.separator + fontname;
+		final File base = new File(getFontsDirectory(), fontname);
 		for (int i = 48; i < 123; i++) {
 			try {
 				if ((i >= 58 && i < 65) || (i >= 91 && i < 97)) {
@@ -280,13 +780,20 @@ public final class OCR {
 				final File bitmap = new File(base, i + ".bmp");
 				if (bitmap.exists()) {
 					final BufferedImage img = ImageIO.read(bitmap);
-					fontset[cnt++] = parseBMP(img, (char) i);
+					if (img.getWidth() > 64) {
+						Log.log("Bitmap " + i + " on font " + fontname + " is wider than 64 pixels");
+						continue;
+					}
+					final Font letter = parseBMP(img, (char) i);
+					if (letter.anchor != null) {
+						fontset[cnt++] = letter;
+					}
 				}
 			} catch (final IOException e) {
 				Log.log("Failed to read bitmap " + i + " on font " + fontname);
 			}
 		}
-		return fontset;
+		return Arrays.copyOf(fontset, cnt);
 	}
 
 	/**
@@ -296,28 +803,15 @@ public final class OCR {
 	 * @return The letter font.
 	 */
 	private static Font parseBMP(final BufferedImage img, final char letter) {
-		final ArrayList<Point> goodPts = new ArrayList<Point>();
-		final ArrayList<Point> badPts = new ArrayList<Point>();
+		final long[] good = new long[img.getHeight()];
 		for (int y = 0; y < img.getHeight(); y++) {
 			for (int x = 0; x < img.getWidth(); x++) {
-				final Color c2 = new Color(img.getRGB(x, y));
-				if (c2.equals(Color.WHITE)) {
-					goodPts.add(new Point(x, y));
-				} else {
-					badPts.add(new Point(x, y));
+				if ((img.getRGB(x, y) & 0xFFFFFF) == 0xFFFFFF) {
+					good[y] |= 1L << x;
 				}
 			}
 		}
-		return new Font(goodPts, badPts, letter, new Rectangle(img.getWidth(), img.getHeight()));
-	}
-
-	private static boolean checkColor(final Color c, final Color c2, final int tol) {
-		return checkColor(c.getRed(), c2.getRed()) + checkColor(c.getGreen(), c2.getGreen())
-		+ checkColor(c.getBlue(), c2.getBlue()) < tol;
-	}
-
-	private static int checkColor(final int rgb, final int val) {
-		return Math.abs(rgb - val);
+		return new Font(good, letter, new Rectangle(img.getWidth(), img.getHeight()));
 	}
 
 	// WE COULD MAYBE REMOVE THIS IF WE ONLY SEARCH ALONG THE MIDDLE OF THE BOX FOR COLORS. THIS WOULD ALSO ALLOW US TO NOT HAVE TO DO ANYWHERE CLOSE
@@ -325,27 +819,30 @@ public final class OCR {
 	// THE ONLY DOWN SIDE WOULD BE THE PERSON MUST MAKE SURE HE HAS HIS BOX CENTERED IN A WAY THAT THE 1 Y LINE THEY SPECIFY HITS ALL THE LETTERS
 	// THIS COULD ALSO BRING IN THE PROBLEM OF THE PERSON NOT KNOWING WHERE THE TEXT IS ON SCREEN AND WOULD MAKE HIS JOB A LOT MORE TROUBLESOME
 	private static String sortLetters(final ArrayList<Letter> letters) {
-		String text = "";
-		Letter oldLetter = null;
-		while (!letters.isEmpty()) {
-			Letter curLetter = new Letter('X', 800, 800);
-			for (int i = 0; i < letters.size(); i++) {
-				if (letters.get(i).x0 < curLetter.x0) {
-					curLetter = letters.get(i);
-				}
+		// the sort is stable, so letters starting at the same column keep the order they were found in
+		Collections.sort(letters, new Comparator<Letter>() {
+			public int compare(final Letter arg0, final Letter arg1) {
+				return arg0.x0 < arg1.x0 ? -1 : arg0.x0 == arg1.x0 ? 0 : 1;
 			}
-			if (oldLetter != null && curLetter.x0 - oldLetter.x1 > 1){
-				text += " ";
+		});
+		final StringBuilder text = new StringBuilder(letters.size() * 2);
+		Letter oldLetter = null;
+		for (final Letter curLetter : letters) {
+			if (oldLetter != null && curLetter.x0 - oldLetter.x1 > 1) {
+				text.append(' ');
 			}
 			oldLetter = curLetter;
-			text += curLetter.letter;
-			letters.remove(curLetter);
+			text.append(curLetter.letter);
 		}
-		return text;
+		return text.toString();
 	}
 
 	/**
 	 * Inner class used to read uptext.
+	 * <br>
+	 * The pixels of the last frame read are kept, and compared with those of the next: if none changed, the last text
+	 * is given back; otherwise the text is only read anew from the first changed column, resuming after the last
+	 * character read wholly left of it.
 	 */
 	private static class UpTextOCR {
 
@@ -358,6 +855,9 @@ public final class OCR {
 			private int[] fontPointsY;
 			private int[] shadowPointsX;
 			private int[] shadowPointsY;
+			private int[] fontColumns;
+			private int[] shadowColumns;
+			private int rows;
 
 			private Character(final char character, final int[] x, final int[] y) {
 				this.character = character;
@@ -385,6 +885,34 @@ public final class OCR {
 					shadowPointsX[i] = shadowPoints.get(i).x;
 					shadowPointsY[i] = shadowPoints.get(i).y;
 				}
+				// the points of each column as a bitmask of rows, to be checked against the columns of the uptext
+				fontColumns = new int[width + 1];
+				shadowColumns = new int[width + 1];
+				for (int i = 0; i < fontPointsX.length; i++) {
+					fontColumns[fontPointsX[i]] |= 1 << fontPointsY[i];
+					rows |= 1 << fontPointsY[i];
+				}
+				for (int i = 0; i < shadowPointsX.length; i++) {
+					shadowColumns[shadowPointsX[i]] |= 1 << shadowPointsY[i];
+				}
+			}
+
+			/**
+			 * Checks if the character is at a point of the uptext.
+			 * @param columns The points of the uptext of the text colors, as a bitmask of rows per column.
+			 * @param x The x coordinate of the character.
+			 * @param y The y coordinate of the character.
+			 * @return <tt>true</tt> if every point of the character is of a text color and none of its shadow points
+			 * is; otherwise <tt>false</tt>.
+			 */
+			private boolean isAt(final int[] columns, final int x, final int y) {
+				for (int i = 0; i < fontColumns.length; i++) {
+					final int column = columns[x + i] >>> y;
+					if ((column & fontColumns[i]) != fontColumns[i] || (column & shadowColumns[i]) != 0) {
+						return false;
+					}
+				}
+				return true;
 			}
 
 			private char getCharacter() {
@@ -612,62 +1140,114 @@ public final class OCR {
 			});
 		}
 
-		private static String getUpText() {
-			final StringBuilder builder = new StringBuilder();
-			final BufferedImage gameImage = Game.getImage();
-			final int leftUpperX = 5;
-			final int leftUpperY = 5;
-			final int width = Game.VIEWPORT.width - 10;
-			final int height = 20;
-			final boolean[][] ocrImage = new boolean[width][height];
-			for (int x = leftUpperX; x < leftUpperX + width; x++) {
-				for (int y = leftUpperY; y < leftUpperY + height; y++) {
-					final int color = gameImage.getRGB(x, y) & 0xFFFFFF;
+		private static final Rectangle BOUNDS = new Rectangle(5, 5, Game.VIEWPORT.width - 10, 20);
+
+		/**
+		 * The widest character; a character checked at a column reads no column further right than this past it.
+		 */
+		private static final int MAX_WIDTH = optionCharacters[0].getWidth();
+
+		/**
+		 * Whether every character has a point in its first column, so no character is at a column without points of a
+		 * text color, and such columns can be skipped.
+		 */
+		private static final boolean ANCHORED = isAnchored();
+
+		private static final int[] pixels = new int[BOUNDS.width * BOUNDS.height];
+		private static final int[] columns = new int[BOUNDS.width];
+		private static boolean read = false;
+		private static String text = "";
+		// the state after each character read: the column to resume at, the length of the text, the column past the
+		// last character and the furthest column read to find the character
+		private static int[] resumes = new int[16];
+		private static int[] lengths = new int[16];
+		private static int[] lastColumns = new int[16];
+		private static int[] reaches = new int[16];
+		private static int characters = 0;
+
+		private static synchronized String getUpText(final Frame frame) {
+			final int width = BOUNDS.width;
+			final int height = BOUNDS.height;
+			int changed = read ? width : 0;
+			for (int x = 0; x < width; x++) {
+				for (int y = 0; y < height; y++) {
+					final int color = frame.getRGB(BOUNDS.x + x, BOUNDS.y + y) & 0xFFFFFF;
+					final int i = x * height + y;
+					if (pixels[i] != color) {
+						pixels[i] = color;
+						if (changed > x) {
+							changed = x;
+						}
+					}
+				}
+			}
+			read = true;
+			if (changed == width) {
+				return text;
+			}
+			for (int x = changed; x < width; x++) {
+				int column = 0;
+				for (int y = 0; y < height; y++) {
+					final int color = pixels[x * height + y];
 					if (getDistanceSquare(color, 14474460) < 12500 // WHITE
 							|| getDistanceSquare(color, 56540) < 12500 // CYAN
 							|| getDistanceSquare(color, 14474240) < 12500 // YELLOW
 							|| getDistanceSquare(color, 15106620) < 12500 // ORANGE
 					) {
-						ocrImage[x - leftUpperX][y - leftUpperY] = true;
-					} else {
-						ocrImage[x - leftUpperX][y - leftUpperY] = false;
+						column |= 1 << y;
 					}
-
 				}
+				columns[x] = column;
+			}
+			// the rows holding any point of a text color; a character is only checked on rows holding all of its points
+			int ink = 0;
+			for (int x = 0; x < width; x++) {
+				ink |= columns[x];
 			}
-			// First, find a capital letter in the area ((0,0),(50,height))
+			// resume after the last character found without reading a changed column
+			while (characters > 0 && reaches[characters - 1] >= changed) {
+				characters--;
+			}
+			final StringBuilder builder = new StringBuilder();
 			int posX = 0;
-			x: for (int x = 0; x < 50; x++) {
-				for (int y = 0; y < height; y++) {
-					c: for (Character c : optionCharacters) {
-						if (c.getCharacter() < 'A' || c.getCharacter() > 'Z') {
-							continue c;
-						}
-						if (y + c.getHeight() >= 20) {
-							continue c;
-						}
-						if (x + c.getWidth() >= 25) {
-							continue c;
-						}
-						for (int j = 0; j < c.fontPointsX.length; j++) {
-							if (!ocrImage[x + c.fontPointsX[j]][y + c.fontPointsY[j]]) {
+			int lastPosX = 0;
+			if (characters > 0) {
+				builder.append(text, 0, lengths[characters - 1]);
+				posX = resumes[characters - 1];
+				lastPosX = lastColumns[characters - 1];
+			} else {
+				// First, find a capital letter in the area ((0,0),(50,height))
+				x: for (int x = 0; x < 50; x++) {
+					if (ANCHORED && columns[x] == 0) {
+						continue;
+					}
+					for (int y = 0; y < height; y++) {
+						c: for (Character c : optionCharacters) {
+							if (c.getCharacter() < 'A' || c.getCharacter() > 'Z') {
 								continue c;
 							}
-						}
-						for (int j = 0; j < c.shadowPointsX.length; j++) {
-							if (ocrImage[x + c.shadowPointsX[j]][y + c.shadowPointsY[j]]) {
+							if (y + c.getHeight() >= 20) {
+								continue c;
+							}
+							if (x + c.getWidth() >= 25) {
+								continue c;
+							}
+							if ((ink >>> y & c.rows) != c.rows || !c.isAt(columns, x, y)) {
 								continue c;
 							}
+							builder.append(c.getCharacter());
+							posX = x + c.getWidth();
+							mark(posX, builder.length(), lastPosX, x + MAX_WIDTH);
+							break x;
 						}
-						builder.append(c.getCharacter());
-						posX = x + c.getWidth();
-						break x;
 					}
 				}
 			}
 			// now read the rest of the characters
-			int lastPosX = 0;
 			for (; posX < Game.VIEWPORT.width - 10; posX++) {
+				if (ANCHORED && columns[posX] == 0) {
+					continue;
+				}
 				y: for (int y = 0; y < height; y++) {
 					c: for (Character c : optionCharacters) {
 						if (y + c.getHeight() >= height) {
@@ -676,27 +1256,46 @@ public final class OCR {
 						if (posX + c.getWidth() >= Game.VIEWPORT.width - 10) {
 							continue c;
 						}
-						for (int j = 0; j < c.fontPointsX.length; j++) {
-							if (!ocrImage[posX + c.fontPointsX[j]][y + c.fontPointsY[j]]) {
-								continue c;
-							}
-						}
-						for (int j = 0; j < c.shadowPointsX.length; j++) {
-							if (ocrImage[posX + c.shadowPointsX[j]][y  + c.shadowPointsY[j]]) {
-								continue c;
-							}
+						if ((ink >>> y & c.rows) != c.rows || !c.isAt(columns, posX, y)) {
+							continue c;
 						}
 						if (lastPosX != 0 && posX - lastPosX > 5) {
 							builder.append(' ');
 						}
 						builder.append(c.getCharacter());
+						final int reach = posX + MAX_WIDTH;
 						posX += c.getWidth() - 1;
 						lastPosX = posX + 1;
+						mark(posX + 1, builder.length(), lastPosX, reach);
 						break y;
 					}
 				}
 			}
-			return builder.toString();
+			text = builder.toString();
+			return text;
+		}
+
+		private static boolean isAnchored() {
+			for (final Character c : optionCharacters) {
+				if (c.fontColumns[0] == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static void mark(final int resume, final int length, final int lastColumn, final int reach) {
+			if (characters == resumes.length) {
+				resumes = Arrays.copyOf(resumes, characters * 2);
+				lengths = Arrays.copyOf(lengths, characters * 2);
+				lastColumns = Arrays.copyOf(lastColumns, characters * 2);
+				reaches = Arrays.copyOf(reaches, characters * 2);
+			}
+			resumes[characters] = resume;
+			lengths[characters] = length;
+			lastColumns[characters] = lastColumn;
+			reaches[characters] = reach;
+			characters++;
 		}
 
 		private static int getDistanceSquare(int c1, int c2) {
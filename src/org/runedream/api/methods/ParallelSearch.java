@@ -0,0 +1,185 @@
+package org.runedream.api.methods;
+
+import java.awt.Rectangle;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.runedream.api.util.PointBuffer;
+
+/**
+ * Splits large searches into bands of rows and searches them on a shared fork/join pool.
+ * <br>
+ * Results are merged in band order, so a parallel search returns the same points in the same (row-major) order as a
+ * sequential one. Searches smaller than the threshold, or run on a single processor, stay sequential.
+ */
+public final class ParallelSearch {
+
+	private static final int BAND_PIXELS = 1 << 14;
+
+	private static volatile boolean enabled = true;
+	private static volatile int threshold = 1 << 16;
+
+	private ParallelSearch() {
+	}
+
+	/**
+	 * A search of a rectangular area, which can be run on any band of rows of it.
+	 */
+	public static interface Search {
+
+		/**
+		 * Searches a band of rows, appending found points in row-major order.
+		 * @param band The band to search.
+		 * @param buffer The buffer to append found points to; or null to only count them.
+		 * @param first <tt>true</tt> to stop after the first found point.
+		 * @return The amount of points found.
+		 */
+		public int search(Rectangle band, PointBuffer buffer, boolean first);
+	}
+
+	private static final class PoolHolder {
+		private static final ForkJoinPool POOL = new ForkJoinPool();
+	}
+
+	/**
+	 * Checks if parallel searching is enabled.
+	 * @return <tt>true</tt> if enabled; otherwise <tt>false</tt>.
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables parallel searching.
+	 * @param enabled <tt>true</tt> to enable; <tt>false</tt> to always search sequentially.
+	 */
+	public static void setEnabled(final boolean enabled) {
+		ParallelSearch.enabled = enabled;
+	}
+
+	/**
+	 * Gets the amount of pixels below which searches stay sequential.
+	 * @return The threshold.
+	 */
+	public static int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Sets the amount of pixels below which searches stay sequential.
+	 * @param threshold The threshold.
+	 */
+	public static void setThreshold(final int threshold) {
+		ParallelSearch.threshold = threshold;
+	}
+
+	/**
+	 * Checks if a search of a given area would run in parallel.
+	 * @param area The area to search.
+	 * @return <tt>true</tt> if parallel; otherwise <tt>false</tt>.
+	 */
+	public static boolean isParallel(final Rectangle area) {
+		return enabled && (long) area.width * area.height >= threshold
+				&& area.height > 1 && Runtime.getRuntime().availableProcessors() > 1;
+	}
+
+	/**
+	 * Runs a search of an area, in parallel if the area is large enough.
+	 * <br>
+	 * When searching for the first point only, bands below a band which has already found a point are skipped,
+	 * and the point found is the one a sequential search would have found.
+	 * @param area The area to search.
+	 * @param search The search to run.
+	 * @param buffer The buffer to append found points to; or null to only count them.
+	 * @param first <tt>true</tt> to stop after the first found point.
+	 * @return The amount of points found.
+	 */
+	public static int search(final Rectangle area, final Search search, final PointBuffer buffer, final boolean first) {
+		if (area.isEmpty()) {
+			return 0;
+		}
+		if (!isParallel(area)) {
+			return search.search(area, buffer, first);
+		}
+		final int rows = Math.max(1, BAND_PIXELS / area.width);
+		final Rectangle[] bands = new Rectangle[(area.height + rows - 1) / rows];
+		for (int i = 0; i < bands.length; i++) {
+			final int y = area.y + i * rows;
+			bands[i] = new Rectangle(area.x, y, area.width, Math.min(rows, area.y + area.height - y));
+		}
+		final PointBuffer[] buffers = new PointBuffer[bands.length];
+		final int[] counts = new int[bands.length];
+		final AtomicInteger found = new AtomicInteger(Integer.MAX_VALUE);
+		PoolHolder.POOL.invoke(new BandTask(search, bands, buffers, counts, buffer != null, first, found, 0, bands.length));
+		if (first) {
+			final int band = found.get();
+			if (band == Integer.MAX_VALUE) {
+				return 0;
+			}
+			if (buffer != null) {
+				buffer.addAll(buffers[band]);
+			}
+			return counts[band];
+		}
+		int count = 0;
+		for (int i = 0; i < bands.length; i++) {
+			if (buffer != null) {
+				buffer.addAll(buffers[i]);
+			}
+			count += counts[i];
+		}
+		return count;
+	}
+
+	private static final class BandTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Search search;
+		private final Rectangle[] bands;
+		private final PointBuffer[] buffers;
+		private final int[] counts;
+		private final boolean buffered;
+		private final boolean first;
+		private final AtomicInteger found;
+		private final int from;
+		private final int to;
+
+		private BandTask(final Search search, final Rectangle[] bands, final PointBuffer[] buffers, final int[] counts,
+				final boolean buffered, final boolean first, final AtomicInteger found, final int from, final int to) {
+			this.search = search;
+			this.bands = bands;
+			this.buffers = buffers;
+			this.counts = counts;
+			this.buffered = buffered;
+			this.first = first;
+			this.found = found;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				final int mid = (from + to) >>> 1;
+				invokeAll(new BandTask(search, bands, buffers, counts, buffered, first, found, from, mid),
+						new BandTask(search, bands, buffers, counts, buffered, first, found, mid, to));
+				return;
+			}
+			if (first && found.get() < from) {
+				return;
+			}
+			final PointBuffer buffer = buffered ? new PointBuffer() : null;
+			final int count = search.search(bands[from], buffer, first);
+			buffers[from] = buffer;
+			counts[from] = count;
+			if (first && count > 0) {
+				int current;
+				while ((current = found.get()) > from && !found.compareAndSet(current, from)) {
+				}
+			}
+		}
+	}
+
+}
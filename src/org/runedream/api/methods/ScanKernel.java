@@ -0,0 +1,51 @@
+package org.runedream.api.methods;
+
+/**
+ * Checks runs of pixels against color matchers, as {@link ColorMatcher#matchRow(int[], int, int, long[])} does.
+ * <br>
+ * The color scans of {@link ImageUtil} go through the fastest kernel available. A kernel using the incubating vector
+ * API of Java 16 and later is kept apart from the other sources, as it only compiles and runs with the
+ * <tt>jdk.incubator.vector</tt> module added; when its class or the module is missing, the row kernel of the matcher
+ * is used instead.
+ */
+abstract class ScanKernel {
+
+	private static final String VECTOR = "org.runedream.api.methods.VectorScanKernel";
+
+	/**
+	 * The kernel checking each run with the row kernel of the matcher.
+	 */
+	static final ScanKernel SCALAR = new ScanKernel() {
+		void matchRow(final ColorMatcher matcher, final int[] pixels, final int offset, final int length,
+				final long[] masks) {
+			matcher.matchRow(pixels, offset, length, masks);
+		}
+	};
+
+	/**
+	 * Loads the vector kernel if it is available.
+	 * @return The vector kernel; or {@link #SCALAR} if it could not be loaded.
+	 */
+	static ScanKernel load() {
+		try {
+			return (ScanKernel) Class.forName(VECTOR).getDeclaredConstructor().newInstance();
+		} catch (final Exception e) {
+			return SCALAR;
+		} catch (final LinkageError e) {
+			// the class was compiled, but the module is not present
+			return SCALAR;
+		}
+	}
+
+	/**
+	 * Checks a run of packed RGB values, setting bit <tt>i % 64</tt> of <tt>masks[i / 64]</tt> if the value at
+	 * <tt>offset + i</tt> matches one of the colors of the matcher, and clearing it otherwise.
+	 * @param matcher The matcher to check by.
+	 * @param pixels The array of RGB values.
+	 * @param offset The index of the first value to check.
+	 * @param length The amount of values to check.
+	 * @param masks The array to store the bitmasks in; of at least <tt>(length + 63) / 64</tt> elements.
+	 */
+	abstract void matchRow(ColorMatcher matcher, int[] pixels, int offset, int length, long[] masks);
+
+}
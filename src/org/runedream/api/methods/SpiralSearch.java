@@ -0,0 +1,79 @@
+package org.runedream.api.methods;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+
+/**
+ * Searches a rectangular area nearest-first, walking outward from a reference point in concentric square rings.
+ * <br>
+ * Once a point is found, only the rings which could still hold a nearer point are walked, so a search costs about as
+ * many checks as there are points within twice the distance to the nearest point found, rather than a check of every
+ * point of the area.
+ */
+public final class SpiralSearch {
+
+	private SpiralSearch() {
+	}
+
+	/**
+	 * A check of a single point.
+	 */
+	public static interface Check {
+
+		/**
+		 * Checks a point.
+		 * @param x The x coordinate.
+		 * @param y The y coordinate.
+		 * @return <tt>true</tt> if the point is found; otherwise <tt>false</tt>.
+		 */
+		public boolean check(int x, int y);
+	}
+
+	/**
+	 * Gets the point of an area nearest to a reference point, by euclidean distance, which passes a check. Of points
+	 * equally near, the first in row-major order is returned, as by
+	 * {@link org.runedream.api.util.PointBuffer#getNearest(Point)}.
+	 * @param area The area to search.
+	 * @param point The reference point; may lie outside of the area.
+	 * @param check The check to pass.
+	 * @return The nearest point found; or null if none.
+	 */
+	public static Point getNearest(final Rectangle area, final Point point, final Check check) {
+		if (area.isEmpty()) {
+			return null;
+		}
+		final int left = area.x, top = area.y;
+		final int right = area.x + area.width - 1, bottom = area.y + area.height - 1;
+		final int px = point.x, py = point.y;
+		// rings nearer than the area hold none of its points, and rings past its farthest corner hold none either
+		final int first = Math.max(Math.max(left - px, px - right), Math.max(top - py, py - bottom));
+		final int last = Math.max(Math.max(Math.abs(px - left), Math.abs(px - right)),
+				Math.max(Math.abs(py - top), Math.abs(py - bottom)));
+		int foundX = 0, foundY = 0;
+		long best = Long.MAX_VALUE;
+		for (int ring = Math.max(first, 0); ring <= last && (long) ring * ring <= best; ring++) {
+			final int minX = Math.max(px - ring, left), maxX = Math.min(px + ring, right);
+			final int minY = Math.max(py - ring, top), maxY = Math.min(py + ring, bottom);
+			for (int y = minY; y <= maxY; y++) {
+				final boolean edge = y == py - ring || y == py + ring;
+				// rows on the top and bottom edges of the ring are walked in full, other rows only at its two sides
+				final int step = edge || ring == 0 ? 1 : ring * 2;
+				for (int x = edge ? minX : px - ring; x <= maxX; x += step) {
+					if (x < minX) {
+						continue;
+					}
+					final long dx = x - px, dy = y - py;
+					final long distance = dx * dx + dy * dy;
+					if ((distance < best || distance == best && (y < foundY || y == foundY && x < foundX))
+							&& check.check(x, y)) {
+						best = distance;
+						foundX = x;
+						foundY = y;
+					}
+				}
+			}
+		}
+		return best != Long.MAX_VALUE ? new Point(foundX, foundY) : null;
+	}
+
+}
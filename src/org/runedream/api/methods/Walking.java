@@ -27,11 +27,15 @@ public final class Walking {
 	}
 
 	/**
-	 * Gets the location of the destination flag.
+	 * Gets the location of the destination flag, searching around where it was last found first.
+	 * <br>
+	 * The location is the point nearest to where the flag was last found, or the first point in row-major order when
+	 * the whole minimap is searched; no longer a random point of the flag, as it was before the location was cached.
 	 * @return The location of the destination flag; or null if not found.
+	 * @see LocationCache
 	 */
 	public static Point getFlagLocation() {
-		return FLAG.getPoint(Game.MINIMAP);
+		return LocationCache.getDefault().find(FLAG, Game.MINIMAP);
 	}
 
 	/**
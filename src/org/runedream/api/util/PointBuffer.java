@@ -0,0 +1,270 @@
+package org.runedream.api.util;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * A growable, reusable collection of points packed into a primitive array.
+ * <br>
+ * Each point is stored as a single <tt>int</tt> of <tt>x &lt;&lt; 16 | y</tt>, so coordinates must lie within [0, 65535].
+ * Call {@link #clear()} to reuse a buffer without reallocating it.
+ */
+public final class PointBuffer {
+
+	private int[] points;
+	private int size;
+
+	/**
+	 * Constructs an empty PointBuffer with a default capacity.
+	 */
+	public PointBuffer() {
+		this(64);
+	}
+
+	/**
+	 * Constructs an empty PointBuffer with a given initial capacity.
+	 * @param capacity The initial capacity.
+	 */
+	public PointBuffer(final int capacity) {
+		points = new int[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Packs an x-y coordinate into a single integer.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return The packed point.
+	 */
+	public static int pack(final int x, final int y) {
+		return (x << 16) | (y & 0xFFFF);
+	}
+
+	/**
+	 * Adds a point to the buffer.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 */
+	public void add(final int x, final int y) {
+		if (size == points.length) {
+			points = Arrays.copyOf(points, size << 1);
+		}
+		points[size++] = (x << 16) | (y & 0xFFFF);
+	}
+
+	/**
+	 * Adds a point to the buffer.
+	 * @param p The point to add.
+	 */
+	public void add(final Point p) {
+		add(p.x, p.y);
+	}
+
+	/**
+	 * Adds all points of another buffer to this buffer.
+	 * @param other The buffer to add.
+	 */
+	public void addAll(final PointBuffer other) {
+		if (size + other.size > points.length) {
+			points = Arrays.copyOf(points, Math.max(size + other.size, size << 1));
+		}
+		System.arraycopy(other.points, 0, points, size, other.size);
+		size += other.size;
+	}
+
+	/**
+	 * Removes all points from the buffer, keeping its capacity.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Gets the amount of points in the buffer.
+	 * @return The amount of points.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks if the buffer is empty.
+	 * @return <tt>true</tt> if empty; otherwise <tt>false</tt>.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Gets the packed point at a given index.
+	 * @param index The index.
+	 * @return The packed point.
+	 */
+	public int getPacked(final int index) {
+		checkIndex(index);
+		return points[index];
+	}
+
+	/**
+	 * Gets the x coordinate of the point at a given index.
+	 * @param index The index.
+	 * @return The x coordinate.
+	 */
+	public int getX(final int index) {
+		checkIndex(index);
+		return points[index] >>> 16;
+	}
+
+	/**
+	 * Gets the y coordinate of the point at a given index.
+	 * @param index The index.
+	 * @return The y coordinate.
+	 */
+	public int getY(final int index) {
+		checkIndex(index);
+		return points[index] & 0xFFFF;
+	}
+
+	/**
+	 * Gets the point at a given index.
+	 * @param index The index.
+	 * @return The point.
+	 */
+	public Point get(final int index) {
+		checkIndex(index);
+		final int p = points[index];
+		return new Point(p >>> 16, p & 0xFFFF);
+	}
+
+	/**
+	 * Gets a random point of the buffer.
+	 * @return A random point; or null if empty.
+	 */
+	public Point getRandom() {
+		return size > 0 ? get(Random.random(0, size)) : null;
+	}
+
+	/**
+	 * Gets the smallest rectangle containing every point of the buffer.
+	 * @return The bounding rectangle; or null if empty.
+	 */
+	public Rectangle getBounds() {
+		if (size == 0) {
+			return null;
+		}
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+		for (int i = 0; i < size; i++) {
+			final int x = points[i] >>> 16;
+			final int y = points[i] & 0xFFFF;
+			if (x < minX) {
+				minX = x;
+			}
+			if (x > maxX) {
+				maxX = x;
+			}
+			if (y < minY) {
+				minY = y;
+			}
+			if (y > maxY) {
+				maxY = y;
+			}
+		}
+		return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+	}
+
+	/**
+	 * Gets the centroid (average location) of the points of the buffer.
+	 * @return The centroid; or null if empty.
+	 */
+	public Point getCentroid() {
+		if (size == 0) {
+			return null;
+		}
+		long sumX = 0, sumY = 0;
+		for (int i = 0; i < size; i++) {
+			sumX += points[i] >>> 16;
+			sumY += points[i] & 0xFFFF;
+		}
+		return new Point((int) (sumX / size), (int) (sumY / size));
+	}
+
+	/**
+	 * Gets the index of the point nearest to a given x-y coordinate.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return The index of the nearest point; or -1 if empty.
+	 */
+	public int indexOfNearest(final int x, final int y) {
+		int nearest = -1;
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < size; i++) {
+			final long dx = (points[i] >>> 16) - x;
+			final long dy = (points[i] & 0xFFFF) - y;
+			final long dist = dx * dx + dy * dy;
+			if (dist < best) {
+				best = dist;
+				nearest = i;
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * Gets the point nearest to a given point.
+	 * @param p The point to get the nearest to.
+	 * @return The nearest point; or null if empty.
+	 */
+	public Point getNearest(final Point p) {
+		final int index = indexOfNearest(p.x, p.y);
+		return index != -1 ? get(index) : null;
+	}
+
+	/**
+	 * Checks if the buffer contains a given point.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return <tt>true</tt> if contained; otherwise <tt>false</tt>.
+	 */
+	public boolean contains(final int x, final int y) {
+		final int packed = pack(x, y);
+		for (int i = 0; i < size; i++) {
+			if (points[i] == packed) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the points of the buffer as an array.
+	 * @return An array of the points.
+	 */
+	public Point[] toArray() {
+		final Point[] array = new Point[size];
+		for (int i = 0; i < size; i++) {
+			array[i] = new Point(points[i] >>> 16, points[i] & 0xFFFF);
+		}
+		return array;
+	}
+
+	/**
+	 * Gets the points of the buffer as a list.
+	 * @return A list of the points.
+	 */
+	public LinkedList<Point> toList() {
+		final LinkedList<Point> list = new LinkedList<Point>();
+		for (int i = 0; i < size; i++) {
+			list.add(new Point(points[i] >>> 16, points[i] & 0xFFFF));
+		}
+		return list;
+	}
+
+	private void checkIndex(final int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+}
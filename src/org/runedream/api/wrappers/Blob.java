@@ -0,0 +1,153 @@
+package org.runedream.api.wrappers;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+
+import org.runedream.api.util.PointBuffer;
+
+/**
+ * A connected cluster of pixels, such as a tree or an NPC of a given color, held as its horizontal spans of pixels.
+ *
+ * @see org.runedream.api.methods.ImageUtil#getBlobs(org.runedream.api.methods.BitMask, int, int, int)
+ */
+public final class Blob {
+
+	private final int[] spans;
+	private final int area;
+	private final Rectangle bounds;
+	private final long sumX;
+	private final long sumY;
+
+	/**
+	 * Constructs a Blob.
+	 * @param spans The spans of the blob in row-major order, as triples of the y coordinate, the x coordinate of the
+	 * first pixel and the x coordinate past the last pixel of each span.
+	 */
+	public Blob(final int[] spans) {
+		this.spans = spans.clone();
+		int area = 0, minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+		long sumX = 0, sumY = 0;
+		for (int i = 0; i < spans.length; i += 3) {
+			final int y = spans[i], start = spans[i + 1], end = spans[i + 2];
+			final int length = end - start;
+			area += length;
+			// the sum of the x coordinates start to end - 1
+			sumX += (long) (start + end - 1) * length / 2;
+			sumY += (long) y * length;
+			minX = Math.min(minX, start);
+			maxX = Math.max(maxX, end);
+			minY = Math.min(minY, y);
+			maxY = Math.max(maxY, y + 1);
+		}
+		this.area = area;
+		this.sumX = sumX;
+		this.sumY = sumY;
+		this.bounds = area == 0 ? new Rectangle() : new Rectangle(minX, minY, maxX - minX, maxY - minY);
+	}
+
+	/**
+	 * Gets the amount of pixels of the blob.
+	 * @return The area.
+	 */
+	public int getArea() {
+		return area;
+	}
+
+	/**
+	 * Gets the bounding box of the blob.
+	 * @return The bounds.
+	 */
+	public Rectangle getBounds() {
+		return new Rectangle(bounds);
+	}
+
+	/**
+	 * Gets the mean point of the pixels of the blob.
+	 * @return The centroid; or null if the blob has no pixels.
+	 */
+	public Point getCentroid() {
+		return area == 0 ? null : new Point((int) (sumX / area), (int) (sumY / area));
+	}
+
+	/**
+	 * Gets the amount of spans of the blob.
+	 * @return The amount of spans.
+	 */
+	public int getSpanCount() {
+		return spans.length / 3;
+	}
+
+	/**
+	 * Gets the y coordinate of a span.
+	 * @param index The index of the span, in row-major order.
+	 * @return The y coordinate.
+	 */
+	public int getSpanY(final int index) {
+		return spans[index * 3];
+	}
+
+	/**
+	 * Gets the x coordinate of the first pixel of a span.
+	 * @param index The index of the span, in row-major order.
+	 * @return The x coordinate.
+	 */
+	public int getSpanStart(final int index) {
+		return spans[index * 3 + 1];
+	}
+
+	/**
+	 * Gets the x coordinate past the last pixel of a span.
+	 * @param index The index of the span, in row-major order.
+	 * @return The x coordinate.
+	 */
+	public int getSpanEnd(final int index) {
+		return spans[index * 3 + 2];
+	}
+
+	/**
+	 * Checks if a point is a pixel of the blob.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return <tt>true</tt> if contained; otherwise <tt>false</tt>.
+	 */
+	public boolean contains(final int x, final int y) {
+		if (!bounds.contains(x, y)) {
+			return false;
+		}
+		for (int i = 0; i < spans.length; i += 3) {
+			if (spans[i] == y && x >= spans[i + 1] && x < spans[i + 2]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if a point is a pixel of the blob.
+	 * @param p The point.
+	 * @return <tt>true</tt> if contained; otherwise <tt>false</tt>.
+	 */
+	public boolean contains(final Point p) {
+		return contains(p.x, p.y);
+	}
+
+	/**
+	 * Gets the pixels of the blob.
+	 * @return A buffer of the pixels, in row-major order.
+	 */
+	public PointBuffer getPoints() {
+		final PointBuffer points = new PointBuffer(area);
+		for (int i = 0; i < spans.length; i += 3) {
+			for (int x = spans[i + 1]; x < spans[i + 2]; x++) {
+				points.add(x, spans[i]);
+			}
+		}
+		return points;
+	}
+
+	@Override
+	public String toString() {
+		return "Blob[area=" + area + ",bounds=" + bounds.x + "," + bounds.y + "," + bounds.width + "," + bounds.height + "]";
+	}
+
+}
@@ -0,0 +1,195 @@
+package org.runedream.api.wrappers;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.runedream.api.methods.ColorMatcher;
+import org.runedream.api.methods.Frame;
+import org.runedream.api.methods.ImageUtil;
+
+/**
+ * An immutable form of a DTM compiled for checking it at many points of frames.
+ * <br>
+ * The branches are ordered by how rarely they match, so that most points are rejected by the first branch checked.
+ * Where every branch of a root point lands within the frame, branches are read by adding raster offsets to the index
+ * of the root pixel, without any bounds checks; root points nearer the edges of the frame fall back on
+ * {@link Frame#getRGB(int, int)}, reading black outside of the frame.
+ *
+ * @see DTM#compile()
+ * @see DTM#compile(Frame...)
+ */
+public final class CompiledDTM {
+
+	private final DTM dtm;
+	private final DTMBranch[] branches;
+	private final ColorMatcher[] matchers;
+	private final int[] x;
+	private final int[] y;
+	private final int minX;
+	private final int minY;
+	private final int maxX;
+	private final int maxY;
+
+	/**
+	 * Compiles a DTM.
+	 * @param dtm The DTM.
+	 * @param rates The share of pixels matched by each branch of the DTM, in the order of the DTM.
+	 */
+	CompiledDTM(final DTM dtm, final double[] rates) {
+		this.dtm = dtm;
+		final DTMBranch[] original = dtm.getBranches();
+		final Integer[] order = new Integer[original.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(final Integer a, final Integer b) {
+				return Double.compare(rates[a], rates[b]);
+			}
+		});
+		branches = new DTMBranch[order.length];
+		matchers = new ColorMatcher[order.length];
+		x = new int[order.length];
+		y = new int[order.length];
+		int minX = 0, minY = 0, maxX = 0, maxY = 0;
+		for (int i = 0; i < order.length; i++) {
+			final DTMBranch branch = original[order[i]];
+			branches[i] = branch;
+			matchers[i] = branch.getMatcher();
+			x[i] = branch.getX();
+			y[i] = branch.getY();
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+	}
+
+	/**
+	 * Estimates the share of pixels matched by each branch of a DTM from the colors each branch matches.
+	 */
+	static double[] estimateRates(final DTM dtm) {
+		final DTMBranch[] branches = dtm.getBranches();
+		final double[] rates = new double[branches.length];
+		for (int i = 0; i < branches.length; i++) {
+			rates[i] = branches[i].getMatcher().getCoverage();
+		}
+		return rates;
+	}
+
+	/**
+	 * Measures the share of pixels matched by each branch of a DTM within sample frames. Branches matching equally
+	 * often are ordered by the colors they match.
+	 */
+	static double[] measureRates(final DTM dtm, final Frame... samples) {
+		final DTMBranch[] branches = dtm.getBranches();
+		final double[] estimates = estimateRates(dtm);
+		final double[] rates = new double[branches.length];
+		long pixels = 0;
+		for (final Frame sample : samples) {
+			pixels += (long) sample.getWidth() * sample.getHeight();
+		}
+		if (pixels == 0) {
+			return estimates;
+		}
+		for (int i = 0; i < branches.length; i++) {
+			long count = 0;
+			for (final Frame sample : samples) {
+				count += ImageUtil.getColorCount(sample, sample.getBounds(), branches[i].getMatcher());
+			}
+			// halved, the estimate is below one pixel, so it only breaks ties between equal counts
+			rates[i] = count + estimates[i] / 2;
+		}
+		return rates;
+	}
+
+	/**
+	 * Gets the DTM this was compiled from.
+	 * @return The DTM.
+	 */
+	public DTM getDTM() {
+		return dtm;
+	}
+
+	/**
+	 * Gets the branches of the DTM, in the order they are checked in.
+	 * @return The branches.
+	 */
+	public DTMBranch[] getBranches() {
+		return branches.clone();
+	}
+
+	/**
+	 * Gets the raster offsets of the branches within a frame, in the order they are checked in.
+	 * @param frame The frame.
+	 * @return The offsets from the index of a root pixel to the index of each branch pixel.
+	 */
+	public int[] getOffsets(final Frame frame) {
+		final int[] offsets = new int[x.length];
+		for (int i = 0; i < offsets.length; i++) {
+			offsets[i] = y[i] * frame.getWidth() + x[i];
+		}
+		return offsets;
+	}
+
+	/**
+	 * Gets the root points of a frame at which every branch lands within the frame.
+	 * @param frame The frame.
+	 * @return The bounds of the root points; empty if the DTM is larger than the frame.
+	 */
+	public Rectangle getInterior(final Frame frame) {
+		return new Rectangle(frame.getX() - minX, frame.getY() - minY,
+				Math.max(frame.getWidth() - maxX + minX, 0), Math.max(frame.getHeight() - maxY + minY, 0));
+	}
+
+	/**
+	 * Checks if the branches are valid around a root pixel whose branches all land within its frame.
+	 * @param pixels The pixels of the frame.
+	 * @param index The index of the root pixel.
+	 * @param offsets The offsets of the branches within the frame.
+	 * @return <tt>true</tt> if valid; otherwise <tt>false</tt>.
+	 * @see #getOffsets(Frame)
+	 * @see #getInterior(Frame)
+	 */
+	public boolean isValidAt(final int[] pixels, final int index, final int[] offsets) {
+		for (int i = 0; i < offsets.length; i++) {
+			if (!matchers[i].matches(pixels[index + offsets[i]])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the branches are valid around a root point of a frame; pixels outside of the frame read as black.
+	 * @param frame The frame to check.
+	 * @param x The x coordinate of the root point.
+	 * @param y The y coordinate of the root point.
+	 * @return <tt>true</tt> if valid; otherwise <tt>false</tt>.
+	 */
+	public boolean isValidAt(final Frame frame, final int x, final int y) {
+		for (int i = 0; i < matchers.length; i++) {
+			if (!matchers[i].matches(frame.getRGB(x + this.x[i], y + this.y[i]))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the DTM is valid at a point of a frame, root point included.
+	 * @param frame The frame to check.
+	 * @param x The x coordinate of the root point.
+	 * @param y The y coordinate of the root point.
+	 * @return <tt>true</tt> if valid; otherwise <tt>false</tt>.
+	 */
+	public boolean matches(final Frame frame, final int x, final int y) {
+		return dtm.getRoot().getMatcher().matches(frame.getRGB(x, y)) && isValidAt(frame, x, y);
+	}
+
+}
@@ -1,9 +1,15 @@
 package org.runedream.api.wrappers;
 
-import org.runedream.api.methods.Calculations;
+import org.runedream.api.methods.ColorMatcher;
+import org.runedream.api.methods.Frame;
 import org.runedream.api.methods.Game;
+import org.runedream.api.methods.ImagePyramid;
 import org.runedream.api.methods.ImageUtil;
+import org.runedream.api.methods.LocationCache;
 import org.runedream.api.methods.Mouse;
+import org.runedream.api.methods.ParallelSearch;
+import org.runedream.api.methods.SpiralSearch;
+import org.runedream.api.util.PointBuffer;
 import org.runedream.api.util.Random;
 
 import java.awt.Point;
@@ -14,13 +20,25 @@ import java.util.List;
 
 /**
  * A Deformable Template Model (DTM), made up of a central "root" point and corresponding relative "branch" points.
+ * <br>
+ * Searching an {@link ImagePyramid} skips every block of pixels whose cell cannot hold a root point, or whose branches
+ * would all land on cells that cannot hold them, judged by the smallest and largest channel values of the cells.
+ * <br>
+ * Every search checks the branches through the {@link CompiledDTM} of the DTM, compiled on first use unless
+ * {@link #compile(Frame...)} has been called.
  * 
  * @author Dang, Vulcan
  */
 public class DTM {
 
+	/**
+	 * The level of the pyramid searched by the pyramid variants; with cells of 4 by 4 pixels.
+	 */
+	private static final int PYRAMID_LEVEL = 2;
+
 	private final DTMRoot root;
 	private final DTMBranch[] branches;
+	private volatile CompiledDTM compiled;
 
 	/**
 	 * Constructs a DTM from a root point and an array of branch points.
@@ -32,20 +50,85 @@ public class DTM {
 		this.branches = branches;
 	}
 
+	/**
+	 * Gets the compiled form of this DTM searches use, compiling it with the branches ordered by how few colors they
+	 * match if not yet compiled.
+	 * @return The compiled DTM.
+	 */
+	public CompiledDTM compile() {
+		CompiledDTM compiled = this.compiled;
+		if (compiled == null) {
+			compiled = new CompiledDTM(this, CompiledDTM.estimateRates(this));
+			this.compiled = compiled;
+		}
+		return compiled;
+	}
+
+	/**
+	 * Compiles this DTM with the branches ordered by how rarely they match within sample frames, such as
+	 * {@link Game#getFrame()} for the live game image, and makes searches use it from then on.
+	 * @param samples The frames to measure within.
+	 * @return The compiled DTM.
+	 */
+	public CompiledDTM compile(final Frame... samples) {
+		final CompiledDTM compiled = new CompiledDTM(this, CompiledDTM.measureRates(this, samples));
+		this.compiled = compiled;
+		return compiled;
+	}
+
 	/**
 	 * Gets all valid location points within a bounded area. Note that the bounds only apply to the root point.
 	 * @param bound The bounds to search within.
 	 * @return An array of points where the DTM is valid.
 	 */
 	public Point[] getAll(final Rectangle bounds) {
-		final LinkedList<Point> points = new LinkedList<Point>();
-		final LinkedList<Point> colorPoints = ImageUtil.getPointsWithColor(Game.getImage(), bounds, root.getColor(), root.getTolerance());
-		for (final Point point : colorPoints) {
-			if (isValidAt(point)) {
-				points.add(point);
-			}
-		}
-		return points.toArray(new Point[points.size()]);
+		return getAll(capture(bounds), bounds);
+	}
+
+	/**
+	 * Gets all valid location points within a bounded area of a frame. Note that the bounds only apply to the root point.
+	 * @param frame The frame to search.
+	 * @param bound The bounds to search within.
+	 * @return An array of points where the DTM is valid.
+	 */
+	public Point[] getAll(final Frame frame, final Rectangle bounds) {
+		return getAll(frame, bounds, new PointBuffer()).toArray();
+	}
+
+	/**
+	 * Gets all valid location points within a bounded area of a frame. Note that the bounds only apply to the root point.
+	 * @param frame The frame to search.
+	 * @param bound The bounds to search within.
+	 * @param buffer The buffer to append valid location points to.
+	 * @return The given buffer.
+	 */
+	public PointBuffer getAll(final Frame frame, final Rectangle bounds, final PointBuffer buffer) {
+		search(frame, bounds, buffer, false);
+		return buffer;
+	}
+
+	/**
+	 * Gets all valid location points within a bounded area of the frame of a pyramid. Note that the bounds only apply
+	 * to the root point.
+	 * @param pyramid The pyramid of the frame to search.
+	 * @param bounds The bounds to search within.
+	 * @param buffer The buffer to append valid location points to.
+	 * @return The given buffer.
+	 */
+	public PointBuffer getAll(final ImagePyramid pyramid, final Rectangle bounds, final PointBuffer buffer) {
+		search(pyramid, bounds, buffer, false);
+		return buffer;
+	}
+
+	/**
+	 * Gets all valid location points within a bounded area of the frame of a pyramid. Note that the bounds only apply
+	 * to the root point.
+	 * @param pyramid The pyramid of the frame to search.
+	 * @param bounds The bounds to search within.
+	 * @return An array of points where the DTM is valid.
+	 */
+	public Point[] getAll(final ImagePyramid pyramid, final Rectangle bounds) {
+		return getAll(pyramid, bounds, new PointBuffer()).toArray();
 	}
 
 	/**
@@ -68,17 +151,32 @@ public class DTM {
 		return getAll(Game.SCREEN);
 	}
 
+	/**
+	 * Gets all valid location points of a frame.
+	 * @param frame The frame to search.
+	 * @return An array of points where the DTM is valid.
+	 */
+	public Point[] getAll(final Frame frame) {
+		return getAll(frame, Game.SCREEN);
+	}
+
 	/**
 	 * Gets a random valid location point.
 	 * @param bounds The bounds to search within.
 	 * @return A point where the DTM is valid.
 	 */
 	public Point getPoint(final Rectangle bounds) {
-		final Point[] points = getAll(bounds);
-		if (points.length > 0) {
-			return points[Random.random(0, points.length)];
-		}
-		return null;
+		return getPoint(capture(bounds), bounds);
+	}
+
+	/**
+	 * Gets a random valid location point of a frame.
+	 * @param frame The frame to search.
+	 * @param bounds The bounds to search within.
+	 * @return A point where the DTM is valid.
+	 */
+	public Point getPoint(final Frame frame, final Rectangle bounds) {
+		return getAll(frame, bounds, new PointBuffer()).getRandom();
 	}
 
 	/**
@@ -88,6 +186,15 @@ public class DTM {
 	public Point getPoint() {
 		return getPoint(Game.SCREEN);
 	}
+
+	/**
+	 * Gets a random valid location point of a frame.
+	 * @param frame The frame to search.
+	 * @return A point where the DTM is valid.
+	 */
+	public Point getPoint(final Frame frame) {
+		return getPoint(frame, Game.SCREEN);
+	}
 	
 	/**
 	 * Gets the nearest valid location point to the given point.
@@ -96,7 +203,30 @@ public class DTM {
 	 * @return A point where the DTM is valid.
 	 */
 	public Point getNearest(final Point point, final Rectangle bounds) {
-		return Calculations.getNearestPoint(Mouse.getLocation(), getAll(bounds));
+		return getNearest(capture(bounds), point, bounds);
+	}
+	
+	/**
+	 * Gets the nearest valid location point of a frame to the given point. The frame is searched outward from the
+	 * point, stopping once no nearer point remains.
+	 * @param frame The frame to search.
+	 * @param point The point to get the nearest to.
+	 * @param bounds The bounds to search within.
+	 * @return A point where the DTM is valid.
+	 */
+	public Point getNearest(final Frame frame, final Point point, final Rectangle bounds) {
+		final ColorMatcher matcher = root.getMatcher();
+		final CompiledDTM compiled = compile();
+		final int[] pixels = frame.getPixels();
+		final int[] offsets = compiled.getOffsets(frame);
+		final Rectangle interior = compiled.getInterior(frame);
+		return SpiralSearch.getNearest(bounds.intersection(frame.getBounds()), point, new SpiralSearch.Check() {
+			public boolean check(final int x, final int y) {
+				final int i = frame.indexOf(x, y);
+				return matcher.matches(pixels[i]) && (interior.contains(x, y)
+						? compiled.isValidAt(pixels, i, offsets) : compiled.isValidAt(frame, x, y));
+			}
+		});
 	}
 	
 	/**
@@ -131,13 +261,42 @@ public class DTM {
 	 * @return The first point where the DTM is valid.
 	 */
 	public Point getFirst(final Rectangle bounds) {
-		final LinkedList<Point> points = ImageUtil.getPointsWithColor(Game.getImage(), bounds, root.getColor(), root.getTolerance());
-		for (final Point point : points) {
-			if (isValidAt(point)) {
-				return point;
-			}
-		}
-		return null;
+		return getFirst(capture(bounds), bounds);
+	}
+
+	/**
+	 * Gets the first valid location point of a frame.
+	 * @param frame The frame to search.
+	 * @param bounds The bounds to search within.
+	 * @return The first point where the DTM is valid.
+	 */
+	public Point getFirst(final Frame frame, final Rectangle bounds) {
+		final PointBuffer buffer = new PointBuffer(1);
+		search(frame, bounds, buffer, true);
+		return buffer.isEmpty() ? null : buffer.get(0);
+	}
+
+	/**
+	 * Gets the first valid location point within a bounded area of the frame of a pyramid.
+	 * @param pyramid The pyramid of the frame to search.
+	 * @param bounds The bounds to search within.
+	 * @return The first point where the DTM is valid.
+	 */
+	public Point getFirst(final ImagePyramid pyramid, final Rectangle bounds) {
+		final PointBuffer buffer = new PointBuffer(1);
+		search(pyramid, bounds, buffer, true);
+		return buffer.isEmpty() ? null : buffer.get(0);
+	}
+
+	/**
+	 * Gets a valid location point, searching around where the DTM was last found first. The whole bounds are searched
+	 * for the first valid location point only if there is none near the last.
+	 * @param bounds The bounds to search within.
+	 * @return A point where the DTM is valid; or null if none.
+	 * @see LocationCache
+	 */
+	public Point getCached(final Rectangle bounds) {
+		return LocationCache.getDefault().find(this, bounds);
 	}
 
 	/**
@@ -148,6 +307,15 @@ public class DTM {
 		return getFirst(Game.SCREEN);
 	}
 
+	/**
+	 * Gets the first valid location point of a frame.
+	 * @param frame The frame to search.
+	 * @return The first point where the DTM is valid.
+	 */
+	public Point getFirst(final Frame frame) {
+		return getFirst(frame, Game.SCREEN);
+	}
+
 	/**
 	 * Constructs a polygon from the branches of the DTM relative to the given point.
 	 * @param point The point to treat as the root.
@@ -183,6 +351,26 @@ public class DTM {
 		return getFirst(bound) != null;
 	}
 
+	/**
+	 * Checks if a valid location point exists within the supplied bounds of a frame.
+	 * @param frame The frame to search.
+	 * @param bound The bounds to search within.
+	 * @return <tt>true</tt> if a point was found; otherwise <tt>false</tt>.
+	 */
+	public boolean isValid(final Frame frame, final Rectangle bound) {
+		return getFirst(frame, bound) != null;
+	}
+
+	/**
+	 * Checks if a valid location point exists within the supplied bounds of the frame of a pyramid.
+	 * @param pyramid The pyramid of the frame to search.
+	 * @param bound The bounds to search within.
+	 * @return <tt>true</tt> if a point was found; otherwise <tt>false</tt>.
+	 */
+	public boolean isValid(final ImagePyramid pyramid, final Rectangle bound) {
+		return getFirst(pyramid, bound) != null;
+	}
+
 	/**
 	 * Checks if a valid location point exists.
 	 * @return <tt>true</tt> if a point was found; otherwise <tt>false</tt>.
@@ -192,19 +380,156 @@ public class DTM {
 	}
 
 	/**
-	 * Checks if the DTM is valid at a given point, assuming that the supplied point is a valid root point.
-	 * @param point The point to check.
-	 * @return <tt>true</tt> if found, otherwise <tt>false</tt>.
+	 * Checks if a valid location point exists within a frame.
+	 * @param frame The frame to search.
+	 * @return <tt>true</tt> if a point was found; otherwise <tt>false</tt>.
+	 */
+	public boolean isValid(final Frame frame) {
+		return isValid(frame, Game.SCREEN);
+	}
+
+	/**
+	 * Searches for valid location points within the bounds of a frame, in parallel for large bounds.
+	 * @param frame The frame to search.
+	 * @param bounds The bounds of the root point.
+	 * @param buffer The buffer to append valid location points to, in row-major order.
+	 * @param first <tt>true</tt> to stop after the first valid location point.
+	 */
+	private void search(final Frame frame, final Rectangle bounds, final PointBuffer buffer, final boolean first) {
+		final CompiledDTM compiled = compile();
+		final int[] pixels = frame.getPixels();
+		final int[] offsets = compiled.getOffsets(frame);
+		final Rectangle interior = compiled.getInterior(frame);
+		ParallelSearch.search(bounds.intersection(frame.getBounds()), new ParallelSearch.Search() {
+			public int search(final Rectangle band, final PointBuffer points, final boolean stop) {
+				final PointBuffer roots = ImageUtil.getPointsWithColor(frame, band, root.getMatcher(), new PointBuffer());
+				int count = 0;
+				for (int i = 0; i < roots.size(); i++) {
+					final int x = roots.getX(i);
+					final int y = roots.getY(i);
+					if (interior.contains(x, y) ? compiled.isValidAt(pixels, frame.indexOf(x, y), offsets)
+							: compiled.isValidAt(frame, x, y)) {
+						points.add(x, y);
+						count++;
+						if (stop) {
+							break;
+						}
+					}
+				}
+				return count;
+			}
+		}, buffer, first);
+	}
+
+	/**
+	 * Searches for valid location points within the bounds of the frame of a pyramid, checking only the pixels of cells
+	 * which may hold the DTM.
+	 * @param pyramid The pyramid of the frame to search.
+	 * @param bounds The bounds of the root point.
+	 * @param buffer The buffer to append valid location points to, in row-major order.
+	 * @param first <tt>true</tt> to stop after the first valid location point.
 	 */
-	private boolean isValidAt(final Point point) {
+	private void search(final ImagePyramid pyramid, final Rectangle bounds, final PointBuffer buffer, final boolean first) {
+		final Frame frame = pyramid.getFrame();
+		final ImagePyramid.Level level = pyramid.getLevel(PYRAMID_LEVEL);
+		final ColorMatcher matcher = root.getMatcher();
+		final CompiledDTM compiled = compile();
+		final int[] pixels = frame.getPixels();
+		final int[] offsets = compiled.getOffsets(frame);
+		final Rectangle interior = compiled.getInterior(frame);
+		ParallelSearch.search(bounds.intersection(frame.getBounds()), new ParallelSearch.Search() {
+			public int search(final Rectangle band, final PointBuffer points, final boolean stop) {
+				final int left = level.toColumn(band.x);
+				final int right = level.toColumn(band.x + band.width - 1);
+				final boolean[] candidates = new boolean[right - left + 1];
+				int row = Integer.MIN_VALUE;
+				int count = 0;
+				for (int y = band.y; y < band.y + band.height; y++) {
+					if (level.toRow(y) != row) {
+						row = level.toRow(y);
+						for (int column = left; column <= right; column++) {
+							candidates[column - left] = mayHold(frame, level, column, row);
+						}
+					}
+					for (int column = left; column <= right; column++) {
+						if (!candidates[column - left]) {
+							continue;
+						}
+						final int start = Math.max(band.x, level.toX(column));
+						final int end = Math.min(band.x + band.width, level.toX(column + 1));
+						for (int x = start, i = frame.indexOf(start, y); x < end; x++, i++) {
+							if (matcher.matches(pixels[i]) && (interior.contains(x, y)
+									? compiled.isValidAt(pixels, i, offsets) : compiled.isValidAt(frame, x, y))) {
+								points.add(x, y);
+								count++;
+								if (stop) {
+									return count;
+								}
+							}
+						}
+					}
+				}
+				return count;
+			}
+		}, buffer, first);
+	}
+
+	/**
+	 * Checks if a cell of a pyramid level may hold the root point of the DTM, given that each branch must land on a
+	 * cell which may hold its color. Branches which may land outside of the frame, where pixels read as black, are
+	 * assumed to be valid.
+	 * @param frame The frame of the pyramid.
+	 * @param level The pyramid level.
+	 * @param column The column of the cell.
+	 * @param row The row of the cell.
+	 * @return <tt>false</tt> if the DTM cannot be valid at any point of the cell; otherwise <tt>true</tt>.
+	 */
+	private boolean mayHold(final Frame frame, final ImagePyramid.Level level, final int column, final int row) {
+		if (!level.mayMatch(column, row, root.getMatcher())) {
+			return false;
+		}
+		final int x = level.toX(column);
+		final int y = level.toY(row);
+		final int size = level.getScale();
 		for (final DTMBranch branch : branches) {
-			if (!branch.isValidAt(point)) {
+			final Rectangle area = new Rectangle(x + branch.getX(), y + branch.getY(), size, size);
+			if (!frame.contains(area)) {
+				continue;
+			}
+			final int left = level.toColumn(area.x);
+			final int right = level.toColumn(area.x + size - 1);
+			final int top = level.toRow(area.y);
+			final int bottom = level.toRow(area.y + size - 1);
+			boolean found = false;
+			for (int r = top; r <= bottom && !found; r++) {
+				for (int c = left; c <= right && !found; c++) {
+					found = level.mayMatch(c, r, branch.getMatcher());
+				}
+			}
+			if (!found) {
 				return false;
 			}
 		}
 		return true;
 	}
-	
+
+	/**
+	 * Captures the part of the game image which the DTM can cover when its root lies within given bounds.
+	 * @param bounds The bounds of the root point.
+	 * @return A frame of the bounds expanded by the offsets of the branches.
+	 */
+	private Frame capture(final Rectangle bounds) {
+		int minX = 0, minY = 0, maxX = 0, maxY = 0;
+		for (final DTMBranch branch : branches) {
+			minX = Math.min(minX, branch.getX());
+			minY = Math.min(minY, branch.getY());
+			maxX = Math.max(maxX, branch.getX());
+			maxY = Math.max(maxY, branch.getY());
+		}
+		return Game.getFrame(new Rectangle(bounds.x + minX, bounds.y + minY,
+				bounds.width + maxX - minX, bounds.height + maxY - minY));
+	}
+
 	/**
 	 * Gets an interaction point of the DTM, determined by a gaussian-distributed random point within the branch polygon, within the given bounds.
 	 * @param bounds The bounds to search within.
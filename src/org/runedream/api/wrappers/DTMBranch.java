@@ -3,7 +3,8 @@ package org.runedream.api.wrappers;
 import java.awt.Color;
 import java.awt.Point;
 
-import org.runedream.api.methods.ColorUtil;
+import org.runedream.api.methods.ColorMatcher;
+import org.runedream.api.methods.Frame;
 import org.runedream.api.methods.Game;
 
 /**
@@ -17,6 +18,7 @@ public class DTMBranch {
 	private final int y;
 	private final int tolerance;
 	private final Color color;
+	private final ColorMatcher matcher;
 	
 	/**
 	 * Constructs a DTMBranch.
@@ -36,10 +38,21 @@ public class DTMBranch {
 	 * @param tolerance The tolerance of the color.
 	 */
 	public DTMBranch(final Color color, final int x, final int y, final int tolerance) {
-		this.color = color;
+		this(new ColorMatcher(color, tolerance), x, y);
+	}
+
+	/**
+	 * Constructs a DTMBranch matching a compiled color matcher.
+	 * @param matcher The matcher of the branch point; its first color is the color of the branch point.
+	 * @param x The relative x coordinate.
+	 * @param y The relative y coordinate.
+	 */
+	public DTMBranch(final ColorMatcher matcher, final int x, final int y) {
+		this.color = matcher.getColors()[0];
 		this.x = x;
 		this.y = y;
-		this.tolerance = tolerance;
+		this.tolerance = matcher.getTolerance();
+		this.matcher = matcher;
 	}
 
 	/**
@@ -74,13 +87,42 @@ public class DTMBranch {
 		return this.tolerance;
 	}
 
+	/**
+	 * Gets this branch's color matcher.
+	 * @return This branch's color matcher.
+	 */
+	public ColorMatcher getMatcher() {
+		return this.matcher;
+	}
+
 	/**
 	 * Checks if this branch point is valid at a given point.
 	 * @param p The point to check for validity at.
 	 * @return <tt>true</tt> if the branch is valid at Point p; otherwise <tt>false</tt>.
 	 */
 	public boolean isValidAt(final Point p) {
-		return ColorUtil.isTolerable(Game.getColorAt(p.x + getX(), p.y + getY()), getColor(), getTolerance());
+		return matcher.matches(Game.getColorAt(p.x + getX(), p.y + getY()));
+	}
+	
+	/**
+	 * Checks if this branch point is valid at a given point of a given frame.
+	 * @param frame The frame to check.
+	 * @param p The point to check for validity at.
+	 * @return <tt>true</tt> if the branch is valid at Point p; otherwise <tt>false</tt>.
+	 */
+	public boolean isValidAt(final Frame frame, final Point p) {
+		return isValidAt(frame, p.x, p.y);
+	}
+	
+	/**
+	 * Checks if this branch point is valid at a given x-y coordinate of a given frame.
+	 * @param frame The frame to check.
+	 * @param x The x coordinate to check for validity at.
+	 * @param y The y coordinate to check for validity at.
+	 * @return <tt>true</tt> if the branch is valid at the coordinate; otherwise <tt>false</tt>.
+	 */
+	public boolean isValidAt(final Frame frame, final int x, final int y) {
+		return matcher.matches(frame.getRGB(x + this.x, y + this.y));
 	}
 	
 	/**
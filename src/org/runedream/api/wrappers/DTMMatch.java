@@ -0,0 +1,77 @@
+package org.runedream.api.wrappers;
+
+import java.awt.Point;
+
+/**
+ * A location where a rotated DTM was matched, along with the orientation it was matched in.
+ *
+ * @see RotatedDTM
+ */
+public final class DTMMatch {
+
+	private final int x;
+	private final int y;
+	private final int angle;
+	private final double scale;
+
+	/**
+	 * Constructs a DTMMatch.
+	 * @param x The x coordinate of the root point.
+	 * @param y The y coordinate of the root point.
+	 * @param angle The compass angle the DTM was matched at, in degrees.
+	 * @param scale The scale the DTM was matched at.
+	 */
+	public DTMMatch(final int x, final int y, final int angle, final double scale) {
+		this.x = x;
+		this.y = y;
+		this.angle = angle;
+		this.scale = scale;
+	}
+
+	/**
+	 * Gets the x coordinate of the root point.
+	 * @return The x coordinate.
+	 */
+	public int getX() {
+		return x;
+	}
+
+	/**
+	 * Gets the y coordinate of the root point.
+	 * @return The y coordinate.
+	 */
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * Gets the root point.
+	 * @return The location.
+	 */
+	public Point getLocation() {
+		return new Point(x, y);
+	}
+
+	/**
+	 * Gets the compass angle the DTM was matched at.
+	 * @return The angle, in degrees.
+	 * @see org.runedream.api.methods.Camera#getCompassAngle()
+	 */
+	public int getAngle() {
+		return angle;
+	}
+
+	/**
+	 * Gets the scale the DTM was matched at.
+	 * @return The scale.
+	 */
+	public double getScale() {
+		return scale;
+	}
+
+	@Override
+	public String toString() {
+		return "DTMMatch[x=" + x + ",y=" + y + ",angle=" + angle + ",scale=" + scale + "]";
+	}
+
+}
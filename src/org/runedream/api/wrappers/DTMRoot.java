@@ -3,7 +3,8 @@ package org.runedream.api.wrappers;
 import java.awt.Color;
 import java.awt.Point;
 
-import org.runedream.api.methods.ColorUtil;
+import org.runedream.api.methods.ColorMatcher;
+import org.runedream.api.methods.Frame;
 import org.runedream.api.methods.Game;
 
 /**
@@ -16,6 +17,7 @@ public class DTMRoot {
 
 	private final int tolerance;
 	private final Color color;
+	private final ColorMatcher matcher;
 
 	/**
 	 * Constructs a DTMRoot.
@@ -48,8 +50,17 @@ public class DTMRoot {
 	 * @param tolerance The tolerance.
 	 */
 	public DTMRoot(final Color color, final int tolerance) {
-		this.color = color;
-		this.tolerance = tolerance;
+		this(new ColorMatcher(color, tolerance));
+	}
+
+	/**
+	 * Constructs a DTMRoot matching a compiled color matcher.
+	 * @param matcher The matcher of the root point; its first color is the color of the root point.
+	 */
+	public DTMRoot(final ColorMatcher matcher) {
+		this.color = matcher.getColors()[0];
+		this.tolerance = matcher.getTolerance();
+		this.matcher = matcher;
 	}
 
 	/**
@@ -68,13 +79,31 @@ public class DTMRoot {
 		return this.tolerance;
 	}
 
+	/**
+	 * Gets the DTMRoot's color matcher.
+	 * @return The DTMRoot's color matcher.
+	 */
+	public ColorMatcher getMatcher() {
+		return this.matcher;
+	}
+
 	/**
 	 * Checks if this root point is valid at a given point.
 	 * @param p The point to check for validity at.
 	 * @return <tt>true</tt> if the root is valid at Point p; otherwise <tt>false</tt>.
 	 */
 	public boolean isValidAt(final Point p) {
-		return ColorUtil.isTolerable(Game.getColorAt(p.x, p.y), getColor(), getTolerance());
+		return matcher.matches(Game.getColorAt(p.x, p.y));
+	}
+	
+	/**
+	 * Checks if this root point is valid at a given point of a given frame.
+	 * @param frame The frame to check.
+	 * @param p The point to check for validity at.
+	 * @return <tt>true</tt> if the root is valid at Point p; otherwise <tt>false</tt>.
+	 */
+	public boolean isValidAt(final Frame frame, final Point p) {
+		return matcher.matches(frame.getRGB(p.x, p.y));
 	}
 	
 	/**
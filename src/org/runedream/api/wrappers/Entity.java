@@ -7,8 +7,10 @@ import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
-import org.runedream.api.methods.Calculations;
+import org.runedream.api.methods.Frame;
 import org.runedream.api.methods.Game;
+import org.runedream.api.methods.ImageUtil;
+import org.runedream.api.methods.LocationCache;
 import org.runedream.api.methods.Mouse;
 import org.runedream.api.methods.OCR;
 import org.runedream.api.util.Time;
@@ -95,19 +97,35 @@ public class Entity {
 	}
 
 	/**
-	 * Finds an interaction point on the Entity.
+	 * Finds an interaction point on the Entity, searching around where it was last found first.
 	 * <br>
 	 * Note: It is recommended that users of this class view the source to learn how this method works at
 	 * <a href="https://github.com/RuneDream/RuneDream/blob/master/src/org/runedream/api/wrappers/Entity.java>
 	 * Entity.java</a> before using it.
 	 * @return A point located with regards to the constructor parameters.
+	 * @see LocationCache
 	 */
 	public Point findPoint() {
+		return LocationCache.getDefault().find(this, Game.VIEWPORT, new LocationCache.Locator() {
+			public Point locate(final Rectangle area, final Point near) {
+				return findPoint(area, near);
+			}
+		});
+	}
+
+	/**
+	 * Finds an interaction point on the Entity within an area of the viewport.
+	 * @param area The area to search within.
+	 * @param near The point to search nearest to; or null to search nearest to the center of the viewport for colors,
+	 * and in row-major order for DTMs.
+	 * @return A point located with regards to the constructor parameters; or null if none.
+	 */
+	private Point findPoint(final Rectangle area, final Point near) {
 		if (!useDTMs) {
+			final Frame frame = Game.getFrame(area);
 			for (final Color c : colors) {
-				final Point target = Calculations.getNearestPoint(VIEWPORT_CENTER, c);
-				if (target != null && Game.VIEWPORT.contains(target) && !EXP_POPUP_AREA.contains(target)
-							&& !PLAYER_AREA.contains(target)) {
+				final Point target = ImageUtil.getNearestPointWithColor(frame, area, near != null ? near : VIEWPORT_CENTER, c, 0);
+				if (target != null && !EXP_POPUP_AREA.contains(target) && !PLAYER_AREA.contains(target)) {
 					if ((boundedSearch && bounds.contains(target)) || !boundedSearch) {
 						return target;
 					}
@@ -115,15 +133,20 @@ public class Entity {
 			}
 		} else {
 			for (final DTM dtm : dtms) {
-				if (boundedSearch) {
-					for (final Point point : dtm.getAll(Game.VIEWPORT)) {
+				if (near != null) {
+					final Point point = dtm.getNearest(near, area);
+					if (point != null && (!boundedSearch || bounds.contains(point))) {
+						return point;
+					}
+				} else if (boundedSearch) {
+					for (final Point point : dtm.getAll(area)) {
 						if (bounds.contains(point)) {
 							return point;
 						}
 					}
 				} else {
-					for (final Point point : dtm.getAll(Game.VIEWPORT)) {
-						if (Game.VIEWPORT.contains(point)) {
+					for (final Point point : dtm.getAll(area)) {
+						if (area.contains(point)) {
 							return point;
 						}
 					}
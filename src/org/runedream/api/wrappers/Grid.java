@@ -1,10 +1,14 @@
 package org.runedream.api.wrappers;
 
-import org.runedream.api.methods.ColorUtil;
+import org.runedream.api.methods.ColorMatcher;
+import org.runedream.api.methods.Frame;
 import org.runedream.api.methods.Game;
+import org.runedream.api.methods.ImageUtil;
+import org.runedream.api.methods.IntegralImage;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -12,6 +16,11 @@ import java.util.List;
  * Wrapper used to create a grid of smaller rectangle squares., useful for optimizing detection methods.
  * <br>
  * Note: It is faster if the piece size is bigger. It is highly recommended to make the Grid variable final.
+ * <br>
+ * A grid may be given a palette of colors to summarize each frame by: which colors each piece contains, how many of
+ * its pixels match each of them and a hash of its pixels, computed for every piece in one pass over the frame.
+ * Searches of a frame for colors of the palette then look the pieces up in the summary of that frame rather than
+ * scanning them; the summary is made once per frame, so searches should share a frame to share its summary.
  *
  * @author Dang
  */
@@ -20,7 +29,128 @@ public class Grid {
 
 	private final int pieceSize;
 	private final Rectangle bounds;
-	private final LinkedList<Rectangle> rectangles = new LinkedList<Rectangle>();
+	private Rectangle[] rectangles = new Rectangle[16];
+	private int size;
+	private ColorMatcher[] palette = new ColorMatcher[0];
+	private volatile Summary summary;
+
+	/**
+	 * A summary of the pieces of a grid in one frame.
+	 */
+	public static final class Summary {
+
+		private final long frameId;
+		private final Rectangle[] pieces;
+		private final int colors;
+		private final int words;
+		private final long[] presence;
+		private final int[] counts;
+		private final int[] hashes;
+
+		private Summary(final long frameId, final Rectangle[] pieces, final int colors) {
+			this.frameId = frameId;
+			this.pieces = pieces;
+			this.colors = colors;
+			this.words = (colors + 63) >>> 6;
+			this.presence = new long[pieces.length * words];
+			this.counts = new int[pieces.length * colors];
+			this.hashes = new int[pieces.length];
+		}
+
+		/**
+		 * Gets the id of the frame summarized.
+		 * @return The frame id.
+		 */
+		public long getFrameId() {
+			return frameId;
+		}
+
+		/**
+		 * Gets the amount of pieces summarized.
+		 * @return The amount of pieces.
+		 */
+		public int getPieceCount() {
+			return pieces.length;
+		}
+
+		/**
+		 * Checks if a piece contains a color of the palette.
+		 * @param index The index of the piece.
+		 * @param color The index of the color in the palette.
+		 * @return <tt>true</tt> if the piece contains the color; otherwise <tt>false</tt>.
+		 */
+		public boolean contains(final int index, final int color) {
+			return (presence[index * words + (color >>> 6)] & 1L << color) != 0;
+		}
+
+		/**
+		 * Gets the amount of pixels of a piece matching a color of the palette.
+		 * @param index The index of the piece.
+		 * @param color The index of the color in the palette.
+		 * @return The amount of pixels.
+		 */
+		public int getCount(final int index, final int color) {
+			return counts[index * colors + color];
+		}
+
+		/**
+		 * Gets the hash of the pixels of a piece. Pieces with different hashes in two frames have changed.
+		 * @param index The index of the piece.
+		 * @return The hash.
+		 */
+		public int getHash(final int index) {
+			return hashes[index];
+		}
+
+		/**
+		 * Gets the indexes of the pieces containing all given colors of the palette.
+		 * @param colors The indexes of the colors in the palette.
+		 * @return The indexes of the pieces, in order.
+		 */
+		public int[] getContaining(final int... colors) {
+			final long[] wanted = new long[words];
+			for (final int color : colors) {
+				wanted[color >>> 6] |= 1L << color;
+			}
+			final int[] found = new int[pieces.length];
+			int amount = 0;
+			outer: for (int index = 0; index < pieces.length; index++) {
+				for (int w = 0; w < words; w++) {
+					if ((presence[index * words + w] & wanted[w]) != wanted[w]) {
+						continue outer;
+					}
+				}
+				found[amount++] = index;
+			}
+			return Arrays.copyOf(found, amount);
+		}
+
+		/**
+		 * Gets the indexes of the pieces whose pixels differ from those of another summary of the same grid.
+		 * @param previous The other summary.
+		 * @return The indexes of the changed pieces, in order.
+		 */
+		public int[] getChanged(final Summary previous) {
+			final int[] found = new int[pieces.length];
+			int amount = 0;
+			for (int index = 0; index < pieces.length; index++) {
+				if (index >= previous.pieces.length || !pieces[index].equals(previous.pieces[index])
+						|| hashes[index] != previous.hashes[index]) {
+					found[amount++] = index;
+				}
+			}
+			return Arrays.copyOf(found, amount);
+		}
+
+		/**
+		 * Gets the rectangle of a piece summarized.
+		 * @param index The index of the piece.
+		 * @return The piece.
+		 */
+		public Rectangle getPiece(final int index) {
+			return new Rectangle(pieces[index]);
+		}
+	}
 
 	/**
 	 * Constructs a new Grid and sets its rectangles.
@@ -45,7 +175,7 @@ public class Grid {
 	 * Sets the grid.
 	 */
 	private void setRectangles() {
-		this.rectangles.clear();
+		this.size = 0;
 		for (int x = 0; x < this.bounds.width; x += this.pieceSize) {
 			if (x + this.pieceSize > bounds.width) {
 				break;
@@ -54,7 +184,7 @@ public class Grid {
 				if (y + this.pieceSize > this.bounds.height) {
 					break;
 				}
-				this.rectangles.add(new Rectangle(x, y, this.pieceSize, this.pieceSize));
+				this.add(new Rectangle(this.bounds.x + x, this.bounds.y + y, this.pieceSize, this.pieceSize));
 			}
 
 		}
@@ -66,7 +196,10 @@ public class Grid {
 	 * @return The piece at the given index.
 	 */
 	public Rectangle getPiece(final int index) {
-		return this.rectangles.get(index);
+		if (index < 0 || index >= this.size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+		}
+		return this.rectangles[index];
 	}
 
 	/**
@@ -74,9 +207,13 @@ public class Grid {
 	 * @param rects The rectangles to add to the grid.
 	 */
 	public void add(final Rectangle... rects) {
+		if (this.size + rects.length > this.rectangles.length) {
+			this.rectangles = Arrays.copyOf(this.rectangles, Math.max(this.rectangles.length * 2, this.size + rects.length));
+		}
 		for (final Rectangle rectangle : rects) {
-			this.rectangles.add(rectangle);
+			this.rectangles[this.size++] = rectangle;
 		}
+		this.summary = null;
 	}
 
 	/**
@@ -84,15 +221,26 @@ public class Grid {
 	 * @param index The index of the rectangle to remove.
 	 */
 	public void remove(final int index) {
-		this.rectangles.remove(index);
+		getPiece(index);
+		System.arraycopy(this.rectangles, index + 1, this.rectangles, index, this.size - index - 1);
+		this.rectangles[--this.size] = null;
+		this.summary = null;
+	}
+
+	/**
+	 * Gets the amount of rectangles in the grid.
+	 * @return The amount of pieces.
+	 */
+	public int getPieceCount() {
+		return this.size;
 	}
 
 	/**
 	 * Gets all of the grid's rectangles.
-	 * @return The list of rectangles in the grid.
+	 * @return A list of the rectangles in the grid; changes to it do not change the grid.
 	 */
 	public LinkedList<Rectangle> getPieces() {
-		return this.rectangles;
+		return new LinkedList<Rectangle>(Arrays.asList(this.getPiecesArray()));
 	}
 
 	/**
@@ -100,7 +248,96 @@ public class Grid {
 	 * @return An array of rectangles in the grid.
 	 */
 	public Rectangle[] getPiecesArray() {
-		return this.rectangles.toArray(new Rectangle[this.rectangles.size()]);
+		return Arrays.copyOf(this.rectangles, this.size);
+	}
+
+	/**
+	 * Sets the palette of colors to summarize frames by.
+	 * @param matchers The matchers of the colors, in the order their indexes are given by in summaries.
+	 */
+	public void setPalette(final ColorMatcher... matchers) {
+		this.palette = matchers.clone();
+		this.summary = null;
+	}
+
+	/**
+	 * Gets the palette of colors frames are summarized by.
+	 * @return The matchers of the colors.
+	 */
+	public ColorMatcher[] getPalette() {
+		return this.palette.clone();
+	}
+
+	/**
+	 * Summarizes the pieces of the grid in a snapshot of the game image.
+	 * @return The summary.
+	 */
+	public Summary summarize() {
+		return summarize(Game.getFrame(getArea(this.getPiecesArray())));
+	}
+
+	/**
+	 * Gets the smallest rectangle containing all of the given pieces.
+	 */
+	private static Rectangle getArea(final Rectangle[] pieces) {
+		if (pieces.length == 0) {
+			return new Rectangle();
+		}
+		final Rectangle area = new Rectangle(pieces[0]);
+		for (final Rectangle piece : pieces) {
+			area.add(piece);
+		}
+		return area;
+	}
+
+	/**
+	 * Summarizes the pieces of the grid in a frame, against the palette. Pixels of pieces outside of the frame are not
+	 * counted. The last summary is kept, and given back for the same frame while the grid is unchanged.
+	 * @param frame The frame.
+	 * @return The summary.
+	 */
+	public Summary summarize(final Frame frame) {
+		final Summary last = this.summary;
+		if (last != null && last.frameId == frame.getId()) {
+			return last;
+		}
+		final ColorMatcher[] palette = this.palette;
+		final Summary summary = new Summary(frame.getId(), this.getPiecesArray(), palette.length);
+		final int[] pixels = frame.getPixels();
+		final Rectangle bounds = frame.getBounds();
+		long[] masks = new long[0];
+		for (int index = 0; index < summary.pieces.length; index++) {
+			final Rectangle area = summary.pieces[index].intersection(bounds);
+			int hash = 1;
+			if (!area.isEmpty()) {
+				final int words = (area.width + 63) >>> 6;
+				if (masks.length < words) {
+					masks = new long[words];
+				}
+				for (int y = area.y; y < area.y + area.height; y++) {
+					final int offset = frame.indexOf(area.x, y);
+					for (int color = 0; color < palette.length; color++) {
+						palette[color].matchRow(pixels, offset, area.width, masks);
+						int count = 0;
+						for (int w = 0; w < words; w++) {
+							count += Long.bitCount(masks[w]);
+						}
+						summary.counts[index * palette.length + color] += count;
+					}
+					for (int i = offset; i < offset + area.width; i++) {
+						hash = 31 * hash + pixels[i];
+					}
+				}
+				for (int color = 0; color < palette.length; color++) {
+					if (summary.counts[index * palette.length + color] > 0) {
+						summary.presence[index * summary.words + (color >>> 6)] |= 1L << color;
+					}
+				}
+			}
+			summary.hashes[index] = hash;
+		}
+		this.summary = summary;
+		return summary;
 	}
 
 	/**
@@ -109,15 +346,16 @@ public class Grid {
 	 * @return The array of colors in the piece.
 	 */
 	public Color[] getColors(final int index) {
-		final BufferedImage image = Game.getImage();
 		final Rectangle rect = this.getPiece(index);
-		final List<Color> colors = new LinkedList<Color>();
+		final Frame frame = Game.getFrame(rect);
+		final Color[] colors = new Color[rect.width * rect.height];
+		int i = 0;
 		for (int x = 0; x < rect.width; x += 1) {
 			for (int y = 0; y < rect.height; y += 1) {
-				colors.add(new Color(image.getRGB(x, y)));
+				colors[i++] = new Color(frame.getRGB(rect.x + x, rect.y + y));
 			}
 		}
-		return colors.toArray(new Color[colors.size()]);
+		return colors;
 	}
 
 	/**
@@ -144,17 +382,18 @@ public class Grid {
 	 * @return <tt>true</tt> if the piece contains the color with the tolerance; otherwise <tt>false</tt>.
 	 */
 	public boolean contains(final int index, final int tolerance, final Color color) {
-		final BufferedImage image = getImageAt(index);
-		final int width = image.getWidth();
-		final int height = image.getHeight();
-		for (int x = 0; x < width; x += 1) {
-			for (int y = 0; y < height; y += 1) {
-				if (ColorUtil.isTolerable(color, new Color(image.getRGB(x, y)), tolerance)) {
-					return true;
-				}
-			}
-		}
-		return false;
+		return contains(index, new ColorMatcher(color, tolerance));
+	}
+
+	/**
+	 * Checks if the rectangle of a given index contains a color matched by a given matcher.
+	 * @param index The index value of the piece to check.
+	 * @param matcher The matcher to search by.
+	 * @return <tt>true</tt> if the piece contains a matched color; otherwise <tt>false</tt>.
+	 */
+	public boolean contains(final int index, final ColorMatcher matcher) {
+		final Rectangle piece = getPiece(index);
+		return ImageUtil.containsColor(Game.getFrame(piece), piece, matcher);
 	}
 
 	/**
@@ -175,14 +414,37 @@ public class Grid {
 	 * @return <tt>true</tt> if the piece contains all of the colors with the tolerance; otherwise <tt>false</tt>.
 	 */
 	public boolean containsAll(final int index, int tolerance, final Color... colors) {
-		for (final Color color : colors) {
-			if (!contains(index, tolerance, color)) {
+		return containsAll(Game.getFrame(getPiece(index)), index, toMatchers(tolerance, colors));
+	}
+
+	/**
+	 * Checks if the rectangle of a given index contains colors matched by all given matchers.
+	 * @param index The index value of the piece to check.
+	 * @param matchers The matchers to search by.
+	 * @return <tt>true</tt> if the piece contains colors matched by all of the matchers; otherwise <tt>false</tt>.
+	 */
+	public boolean containsAll(final int index, final ColorMatcher... matchers) {
+		return containsAll(Game.getFrame(getPiece(index)), index, matchers);
+	}
+
+	private boolean containsAll(final Frame frame, final int index, final ColorMatcher... matchers) {
+		final Rectangle piece = getPiece(index);
+		for (final ColorMatcher matcher : matchers) {
+			if (!ImageUtil.containsColor(frame, piece, matcher)) {
 				return false;
 			}
 		}
 		return true;
 	}
 
+	private static ColorMatcher[] toMatchers(final int tolerance, final Color... colors) {
+		final ColorMatcher[] matchers = new ColorMatcher[colors.length];
+		for (int i = 0; i < colors.length; i++) {
+			matchers[i] = new ColorMatcher(colors[i], tolerance);
+		}
+		return matchers;
+	}
+
 	/**
 	 * Checks if the rectangle of a given index contains all colors.
 	 * @param index The index value of the piece to check.
@@ -226,15 +488,83 @@ public class Grid {
 	 * @return An array of rectangles with colors with the tolerance.
 	 */
 	public Rectangle[] getContaining(final int tolerance, final Color... colors) {
+		return getContaining(toMatchers(tolerance, colors));
+	}
+
+	/**
+	 * Gets all rectangles containing colors matched by all given matchers, in a new snapshot of the part of the game
+	 * image covered by the grid.
+	 * <br>
+	 * Colors of the palette are looked up in a summary of the snapshot, made in a single pass; other colors are counted
+	 * into tables, as in {@link #getContaining(Frame, ColorMatcher...)}. As every snapshot is a new frame, its summary
+	 * serves this search only; to look many searches up in one summary, capture a frame once and pass it to that method
+	 * instead.
+	 * @param matchers The matchers to search by.
+	 * @return An array of rectangles with colors matched by all of the matchers.
+	 */
+	public Rectangle[] getContaining(final ColorMatcher... matchers) {
+		return getContaining(Game.getFrame(getArea(this.getPiecesArray())), matchers);
+	}
+
+	/**
+	 * Gets all rectangles containing colors matched by all given matchers in a frame.
+	 * <br>
+	 * If every matcher matches the same colors as one of the palette, the pieces are looked up in the summary of the
+	 * frame. The summary is made by the first such search of a frame and reused by every later search passing the same
+	 * frame, so callers searching for several colors at once should capture a single frame for all of them. Otherwise
+	 * the matches of each matcher are counted into a table covering the pieces once, from which each rectangle is
+	 * checked in constant time.
+	 * @param frame The frame.
+	 * @param matchers The matchers to search by.
+	 * @return An array of rectangles with colors matched by all of the matchers.
+	 */
+	public Rectangle[] getContaining(final Frame frame, final ColorMatcher... matchers) {
+		final ColorMatcher[] palette = this.palette;
+		final int[] colors = new int[matchers.length];
+		for (int i = 0; i < matchers.length; i++) {
+			colors[i] = indexOf(palette, matchers[i]);
+			if (colors[i] == -1) {
+				return scan(frame, matchers);
+			}
+		}
+		final Summary summary = summarize(frame);
+		final int[] indexes = summary.getContaining(colors);
+		final Rectangle[] pieces = new Rectangle[indexes.length];
+		for (int i = 0; i < indexes.length; i++) {
+			pieces[i] = summary.pieces[indexes[i]];
+		}
+		return pieces;
+	}
+
+	private Rectangle[] scan(final Frame frame, final ColorMatcher... matchers) {
+		final Rectangle[] all = getPiecesArray();
+		// the tables only need to cover the pieces, not the whole frame
+		final Rectangle area = getArea(all);
+		final IntegralImage[] tables = new IntegralImage[matchers.length];
+		for (int i = 0; i < matchers.length; i++) {
+			tables[i] = new IntegralImage(frame, area, matchers[i], false);
+		}
 		final List<Rectangle> pieces = new LinkedList<Rectangle>();
-		for (int index = 0; index < rectangles.size(); index += 1) {
-			if (containsAll(index, tolerance, colors)) {
-				pieces.add(rectangles.get(index));
+		outer: for (final Rectangle piece : all) {
+			for (final IntegralImage table : tables) {
+				if (table.getCount(piece) == 0) {
+					continue outer;
+				}
 			}
+			pieces.add(piece);
 		}
 		return pieces.toArray(new Rectangle[pieces.size()]);
 	}
 
+	private static int indexOf(final ColorMatcher[] palette, final ColorMatcher matcher) {
+		for (int i = 0; i < palette.length; i++) {
+			if (palette[i].equals(matcher)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
 	/**
 	 * Gets all rectangles containing an array of colors.
 	 * @param colors The colors to search for.
@@ -250,9 +580,9 @@ public class Grid {
 	 * @return The rectangle containing the point.
 	 */
 	public Rectangle getContaining(final Point point) {
-		for (final Rectangle rectangle : rectangles) {
-			if (rectangle.contains(point)) {
-				return rectangle;
+		for (int index = 0; index < size; index += 1) {
+			if (rectangles[index].contains(point)) {
+				return rectangles[index];
 			}
 		}
 		return null;
@@ -264,7 +594,7 @@ public class Grid {
 	 * @return The rectangle containing the points.
 	 */
 	public Rectangle getContaining(final Point... points) {
-		for (int index = 0; index < rectangles.size(); index += 1) {
+		for (int index = 0; index < size; index += 1) {
 			if (containsAll(index, points)) {
 				return getPiece(index);
 			}
@@ -309,7 +639,7 @@ public class Grid {
 	 * @param g The graphics object to draw on.
 	 */
 	public void draw(final Graphics g) {
-		for (final Rectangle r : this.rectangles) {
+		for (final Rectangle r : this.getPiecesArray()) {
 			g.drawRect(r.x, r.y, r.width, r.height);
 		}
 	}
@@ -319,7 +649,7 @@ public class Grid {
 	 * @param g The graphics object to draw on.
 	 */
 	public void drawPoints(final Graphics g) {
-		for (final Rectangle r : rectangles) {
+		for (final Rectangle r : getPiecesArray()) {
 			final int x = r.x, y = r.y;
 			g.drawLine(x, y, x, y);
 		}
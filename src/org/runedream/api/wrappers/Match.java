@@ -0,0 +1,89 @@
+package org.runedream.api.wrappers;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+
+/**
+ * A location where a template was matched, along with its score.
+ *
+ * @see Template
+ */
+public final class Match {
+
+	private final int x;
+	private final int y;
+	private final int width;
+	private final int height;
+	private final double score;
+
+	/**
+	 * Constructs a Match.
+	 * @param x The x coordinate of the upper left corner of the match.
+	 * @param y The y coordinate of the upper left corner of the match.
+	 * @param width The width of the match.
+	 * @param height The height of the match.
+	 * @param score The score of the match.
+	 */
+	public Match(final int x, final int y, final int width, final int height, final double score) {
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+		this.score = score;
+	}
+
+	/**
+	 * Gets the x coordinate of the upper left corner of the match.
+	 * @return The x coordinate.
+	 */
+	public int getX() {
+		return x;
+	}
+
+	/**
+	 * Gets the y coordinate of the upper left corner of the match.
+	 * @return The y coordinate.
+	 */
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * Gets the upper left corner of the match.
+	 * @return The location.
+	 */
+	public Point getLocation() {
+		return new Point(x, y);
+	}
+
+	/**
+	 * Gets the bounds of the match.
+	 * @return The bounds.
+	 */
+	public Rectangle getBounds() {
+		return new Rectangle(x, y, width, height);
+	}
+
+	/**
+	 * Gets the center of the match.
+	 * @return The center point.
+	 */
+	public Point getCenter() {
+		return new Point(x + width / 2, y + height / 2);
+	}
+
+	/**
+	 * Gets the score of the match, in terms of the metric it was matched by.
+	 * @return The score.
+	 * @see Template.Metric
+	 */
+	public double getScore() {
+		return score;
+	}
+
+	@Override
+	public String toString() {
+		return "Match[x=" + x + ",y=" + y + ",width=" + width + ",height=" + height + ",score=" + score + "]";
+	}
+
+}
@@ -5,6 +5,7 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.util.ArrayList;
 
+import org.runedream.api.methods.Frame;
 import org.runedream.api.methods.Game;
 import org.runedream.api.methods.Mouse;
 import org.runedream.api.methods.OCR;
@@ -50,12 +51,13 @@ public final class Menu {
 	 */
 	public Point[] getCorners() {
 		if (corners.isEmpty()) {
-			for (int x = 0; x < Game.getCanvasSize().width; x++) {
-				for (int y = 0; y < Game.getCanvasSize().height; y++) {
-					if (Game.getColorAt(new Point(x, y)).equals(BORDER_BLACK) 
-							&& (Game.getColorAt(new Point(x, y + 1)).equals(BORDER_GRAY)
-							|| (Game.getColorAt(new Point(x, y - 1)).equals(BORDER_GRAY)
-							&& Game.getColorAt(new Point(x, y - 2)).equals(BORDER_WHITE)))) {
+			final Frame frame = Game.getFrame();
+			for (int x = 0; x < frame.getWidth(); x++) {
+				for (int y = 0; y < frame.getHeight(); y++) {
+					if (frame.getColorAt(x, y).equals(BORDER_BLACK) 
+							&& (frame.getColorAt(x, y + 1).equals(BORDER_GRAY)
+							|| (frame.getColorAt(x, y - 1).equals(BORDER_GRAY)
+							&& frame.getColorAt(x, y - 2).equals(BORDER_WHITE)))) {
 						corners.add(corners.size(), new Point(x, y));
 					}
 				}
@@ -157,11 +159,12 @@ public final class Menu {
 	 * @return <tt>true</tt> if the menu is open; otherwise <tt>false</tt>.
 	 */
 	public boolean isOpen() {
+		final Frame frame = Game.getFrame();
 		for (final Point p : corners) {
-			if (!(Game.getColorAt(new Point(p.x, p.y)).equals(BORDER_BLACK) 
-					&& (Game.getColorAt(new Point(p.x, p.y + 1)).equals(BORDER_GRAY)
-					|| (Game.getColorAt(new Point(p.x, p.y - 1)).equals(BORDER_GRAY)
-					&& Game.getColorAt(new Point(p.x, p.y - 2)).equals(BORDER_WHITE))))) {
+			if (!(frame.getColorAt(p.x, p.y).equals(BORDER_BLACK) 
+					&& (frame.getColorAt(p.x, p.y + 1).equals(BORDER_GRAY)
+					|| (frame.getColorAt(p.x, p.y - 1).equals(BORDER_GRAY)
+					&& frame.getColorAt(p.x, p.y - 2).equals(BORDER_WHITE))))) {
 				return false;
 			}
 		}
@@ -0,0 +1,228 @@
+package org.runedream.api.wrappers;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+import org.runedream.api.methods.ColorMatcher;
+import org.runedream.api.methods.Frame;
+import org.runedream.api.methods.Game;
+import org.runedream.api.util.PointBuffer;
+
+/**
+ * A library of templates and DTMs which are all searched for in a single pass over a frame, such as every item which
+ * may fill an inventory or bank.
+ * <br>
+ * Colors are divided into buckets by the four highest bits of each channel. Every pattern is filed under the buckets
+ * of its key pixel: for a template, its opaque pixel of the color least common within it; for a DTM, every bucket
+ * holding a color its root may match. The pass then only checks the patterns filed under the bucket of each pixel, so
+ * its cost grows with the amount of pixels rather than with the amount of pixels times the amount of patterns.
+ * <br>
+ * Templates are matched exactly, on their opaque pixels; those without any match everywhere.
+ *
+ * @see Template
+ * @see DTM
+ */
+public class PatternIndex {
+
+	private static final int BUCKETS = 1 << 12;
+
+	private final Template[] templates;
+	private final DTM[] dtms;
+	private final int[] keys;
+	private final int[] keyX;
+	private final int[] keyY;
+	private final int[][] buckets = new int[BUCKETS][];
+
+	/**
+	 * Constructs a PatternIndex of templates and DTMs.
+	 * @param templates The templates to search for.
+	 * @param dtms The DTMs to search for.
+	 */
+	public PatternIndex(final Template[] templates, final DTM[] dtms) {
+		this.templates = templates.clone();
+		this.dtms = dtms.clone();
+		this.keys = new int[templates.length];
+		this.keyX = new int[templates.length];
+		this.keyY = new int[templates.length];
+		final int[] sizes = new int[BUCKETS];
+		final int[][] filed = new int[BUCKETS][];
+		for (int i = 0; i < templates.length; i++) {
+			final int key = findKey(templates[i]);
+			if (key < 0) {
+				keyX[i] = -1;
+				continue;
+			}
+			keyX[i] = key % templates[i].getWidth();
+			keyY[i] = key / templates[i].getWidth();
+			keys[i] = templates[i].getRGB(keyX[i], keyY[i]);
+			file(filed, sizes, bucket(keys[i]), i);
+		}
+		for (int i = 0; i < dtms.length; i++) {
+			final ColorMatcher matcher = dtms[i].getRoot().getMatcher();
+			for (int b = 0; b < BUCKETS; b++) {
+				final int min = (b & 0xF00) << 12 | (b & 0xF0) << 8 | (b & 0xF) << 4;
+				if (matcher.mayMatch(min, min | 0x0F0F0F)) {
+					file(filed, sizes, b, templates.length + i);
+				}
+			}
+		}
+		for (int b = 0; b < BUCKETS; b++) {
+			if (sizes[b] > 0) {
+				buckets[b] = Arrays.copyOf(filed[b], sizes[b]);
+			}
+		}
+	}
+
+	/**
+	 * Constructs a PatternIndex of templates.
+	 * @param templates The templates to search for.
+	 */
+	public PatternIndex(final Template... templates) {
+		this(templates, new DTM[0]);
+	}
+
+	/**
+	 * Constructs a PatternIndex of DTMs.
+	 * @param dtms The DTMs to search for.
+	 */
+	public PatternIndex(final DTM... dtms) {
+		this(new Template[0], dtms);
+	}
+
+	private static int bucket(final int rgb) {
+		return (rgb >> 12) & 0xF00 | (rgb >> 8) & 0xF0 | (rgb >> 4) & 0xF;
+	}
+
+	private static void file(final int[][] filed, final int[] sizes, final int bucket, final int pattern) {
+		if (filed[bucket] == null) {
+			filed[bucket] = new int[4];
+		} else if (sizes[bucket] == filed[bucket].length) {
+			filed[bucket] = Arrays.copyOf(filed[bucket], sizes[bucket] * 2);
+		}
+		filed[bucket][sizes[bucket]++] = pattern;
+	}
+
+	/**
+	 * Finds the key pixel of a template: the first opaque pixel of the bucket least common within the template.
+	 * @return The index of the pixel in row-major order; or -1 if the template has no opaque pixels.
+	 */
+	private static int findKey(final Template template) {
+		final int width = template.getWidth(), height = template.getHeight();
+		final int[] counts = new int[BUCKETS];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				final int p = template.getRGB(x, y);
+				if (p != 0) {
+					counts[bucket(p)]++;
+				}
+			}
+		}
+		int key = -1;
+		for (int i = 0; i < width * height; i++) {
+			final int p = template.getRGB(i % width, i / width);
+			if (p != 0 && (key < 0 || counts[bucket(p)] < counts[bucket(template.getRGB(key % width, key / width))])) {
+				key = i;
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * Gets the templates of this index.
+	 * @return The templates.
+	 */
+	public Template[] getTemplates() {
+		return templates.clone();
+	}
+
+	/**
+	 * Gets the DTMs of this index.
+	 * @return The DTMs.
+	 */
+	public DTM[] getDTMs() {
+		return dtms.clone();
+	}
+
+	/**
+	 * Finds every pattern of this index within bounds of a frame. Templates must lie within the bounds, whereas the
+	 * bounds only apply to the root points of DTMs.
+	 * @param frame The frame to search.
+	 * @param bounds The bounds to search within.
+	 * @return A buffer of the upper left corners of the matches of each template, followed by a buffer of the valid
+	 * location points of each DTM, each in row-major order.
+	 */
+	public PointBuffer[] getAll(final Frame frame, final Rectangle bounds) {
+		final PointBuffer[] found = new PointBuffer[templates.length + dtms.length];
+		for (int i = 0; i < found.length; i++) {
+			found[i] = new PointBuffer();
+		}
+		final Rectangle area = bounds.intersection(frame.getBounds());
+		final int[] pixels = frame.getPixels();
+		final CompiledDTM[] compiled = new CompiledDTM[dtms.length];
+		final int[][] offsets = new int[dtms.length][];
+		final Rectangle[] interiors = new Rectangle[dtms.length];
+		for (int i = 0; i < dtms.length; i++) {
+			compiled[i] = dtms[i].compile();
+			offsets[i] = compiled[i].getOffsets(frame);
+			interiors[i] = compiled[i].getInterior(frame);
+		}
+		for (int y = area.y; y < area.y + area.height; y++) {
+			for (int x = area.x, i = frame.indexOf(area.x, y); x < area.x + area.width; x++, i++) {
+				final int[] patterns = buckets[bucket(pixels[i])];
+				if (patterns == null) {
+					continue;
+				}
+				for (final int pattern : patterns) {
+					if (pattern < templates.length) {
+						final Template template = templates[pattern];
+						final int left = x - keyX[pattern], top = y - keyY[pattern];
+						if (((pixels[i] ^ keys[pattern]) & 0xFFFFFF) == 0 && left >= area.x && top >= area.y
+								&& left + template.getWidth() <= area.x + area.width
+								&& top + template.getHeight() <= area.y + area.height
+								&& template.equals(frame, left, top)) {
+							found[pattern].add(left, top);
+						}
+					} else {
+						final int dtm = pattern - templates.length;
+						if (dtms[dtm].getRoot().getMatcher().matches(pixels[i]) && (interiors[dtm].contains(x, y)
+								? compiled[dtm].isValidAt(pixels, i, offsets[dtm]) : compiled[dtm].isValidAt(frame, x, y))) {
+							found[pattern].add(x, y);
+						}
+					}
+				}
+			}
+		}
+		for (int i = 0; i < templates.length; i++) {
+			if (keyX[i] == -1) {
+				for (int y = area.y; y <= area.y + area.height - templates[i].getHeight(); y++) {
+					for (int x = area.x; x <= area.x + area.width - templates[i].getWidth(); x++) {
+						found[i].add(x, y);
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Finds every pattern of this index within bounds of the game image. Templates must lie within the bounds, whereas
+	 * the bounds only apply to the root points of DTMs.
+	 * @param bounds The bounds to search within.
+	 * @return A buffer of the upper left corners of the matches of each template, followed by a buffer of the valid
+	 * location points of each DTM, each in row-major order.
+	 */
+	public PointBuffer[] getAll(final Rectangle bounds) {
+		int minX = 0, minY = 0, maxX = 0, maxY = 0;
+		for (final DTM dtm : dtms) {
+			for (final DTMBranch branch : dtm.getBranches()) {
+				minX = Math.min(minX, branch.getX());
+				minY = Math.min(minY, branch.getY());
+				maxX = Math.max(maxX, branch.getX());
+				maxY = Math.max(maxY, branch.getY());
+			}
+		}
+		return getAll(Game.getFrame(new Rectangle(bounds.x + minX, bounds.y + minY,
+				bounds.width + maxX - minX, bounds.height + maxY - minY)), bounds);
+	}
+
+}
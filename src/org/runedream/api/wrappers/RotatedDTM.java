@@ -0,0 +1,327 @@
+package org.runedream.api.wrappers;
+
+import java.awt.Rectangle;
+
+import org.runedream.api.methods.Camera;
+import org.runedream.api.methods.Frame;
+import org.runedream.api.methods.Game;
+import org.runedream.api.methods.ImageUtil;
+import org.runedream.api.methods.ParallelSearch;
+import org.runedream.api.util.PointBuffer;
+
+/**
+ * A DTM searched for in every orientation, for objects which rotate with the camera such as those of the minimap.
+ * <br>
+ * The branches of the DTM, recorded with the compass facing north, are rotated as the game image is at every multiple
+ * of an angular step of the compass, and optionally scaled, into a table of compiled DTMs built once. A search scans
+ * the frame for the root color once and checks every orientation at each root point found.
+ * <br>
+ * A DTM generally matches within a range of angles around its true orientation, so the angle reported with a point is
+ * the middle of the longest range of consecutive angles it was matched at, among the scales it was matched at.
+ *
+ * @see DTM
+ * @see Camera#getCompassAngle()
+ */
+public class RotatedDTM {
+
+	private final DTM dtm;
+	private final int step;
+	private final int[] angles;
+	private final double[] scales;
+	private final CompiledDTM[] orientations;
+	private final int reach;
+
+	/**
+	 * Constructs a RotatedDTM searched for at its recorded scale.
+	 * @param dtm The DTM, as seen with the compass facing north.
+	 * @param step The step between the compass angles to search at, in degrees.
+	 */
+	public RotatedDTM(final DTM dtm, final int step) {
+		this(dtm, step, 1.0);
+	}
+
+	/**
+	 * Constructs a RotatedDTM.
+	 * @param dtm The DTM, as seen with the compass facing north.
+	 * @param step The step between the compass angles to search at, in degrees.
+	 * @param scales The scales to search at, in order of preference.
+	 */
+	public RotatedDTM(final DTM dtm, final int step, final double... scales) {
+		if (step <= 0 || step > 360) {
+			throw new IllegalArgumentException("Step: " + step);
+		}
+		if (scales.length == 0) {
+			throw new IllegalArgumentException("No scales");
+		}
+		this.dtm = dtm;
+		this.step = step;
+		this.angles = new int[(359 + step) / step];
+		this.scales = scales.clone();
+		this.orientations = new CompiledDTM[scales.length * angles.length];
+		final DTMBranch[] branches = dtm.getBranches();
+		final double[] rates = CompiledDTM.estimateRates(dtm);
+		int reach = 0;
+		for (int a = 0; a < angles.length; a++) {
+			angles[a] = a * step;
+			final double radians = Math.toRadians(angles[a]);
+			final double cos = Math.cos(radians), sin = Math.sin(radians);
+			for (int s = 0; s < scales.length; s++) {
+				final DTMBranch[] rotated = new DTMBranch[branches.length];
+				for (int i = 0; i < branches.length; i++) {
+					// turning the compass clockwise turns the game image counterclockwise
+					final int x = branches[i].getX(), y = branches[i].getY();
+					final int rx = (int) Math.round(scales[s] * (x * cos + y * sin));
+					final int ry = (int) Math.round(scales[s] * (y * cos - x * sin));
+					rotated[i] = new DTMBranch(branches[i].getMatcher(), rx, ry);
+					reach = Math.max(reach, Math.max(Math.abs(rx), Math.abs(ry)));
+				}
+				orientations[s * angles.length + a] = new CompiledDTM(new DTM(dtm.getRoot(), rotated), rates);
+			}
+		}
+		this.reach = reach;
+	}
+
+	/**
+	 * Gets the DTM, as seen with the compass facing north.
+	 * @return The DTM.
+	 */
+	public DTM getDTM() {
+		return dtm;
+	}
+
+	/**
+	 * Gets the step between the compass angles searched at.
+	 * @return The step, in degrees.
+	 */
+	public int getStep() {
+		return step;
+	}
+
+	/**
+	 * Gets the scales searched at.
+	 * @return The scales, in order of preference.
+	 */
+	public double[] getScales() {
+		return scales.clone();
+	}
+
+	/**
+	 * Gets the DTM rotated and scaled into a given orientation.
+	 * @param angle The compass angle, in degrees; rounded to the nearest angle searched at.
+	 * @param scale The index of the scale.
+	 * @return The compiled DTM.
+	 */
+	public CompiledDTM getOrientation(final int angle, final int scale) {
+		return orientations[scale * angles.length + getNearestAngle(angle)];
+	}
+
+	/**
+	 * Gets all valid location points within a bounded area of a frame, in every orientation. Note that the bounds
+	 * only apply to the root point.
+	 * @param frame The frame to search.
+	 * @param bounds The bounds to search within.
+	 * @return The matches, in row-major order.
+	 */
+	public DTMMatch[] getAll(final Frame frame, final Rectangle bounds) {
+		return search(frame, bounds, null, false);
+	}
+
+	/**
+	 * Gets all valid location points within a bounded area, in every orientation. Note that the bounds only apply to
+	 * the root point.
+	 * @param bounds The bounds to search within.
+	 * @return The matches, in row-major order.
+	 */
+	public DTMMatch[] getAll(final Rectangle bounds) {
+		return getAll(capture(bounds), bounds);
+	}
+
+	/**
+	 * Gets all valid location points within a bounded area of a frame, in the orientations nearest to a compass angle.
+	 * Note that the bounds only apply to the root point.
+	 * @param frame The frame to search.
+	 * @param bounds The bounds to search within.
+	 * @param angle The compass angle, in degrees.
+	 * @return The matches, in row-major order.
+	 */
+	public DTMMatch[] getAll(final Frame frame, final Rectangle bounds, final int angle) {
+		return search(frame, bounds, getNearestAngle(angle), false);
+	}
+
+	/**
+	 * Gets all valid location points within a bounded area, in the orientations nearest to the current compass angle;
+	 * or in every orientation if the compass cannot be read. Note that the bounds only apply to the root point.
+	 * @param bounds The bounds to search within.
+	 * @return The matches, in row-major order.
+	 */
+	public DTMMatch[] getAllAtCompass(final Rectangle bounds) {
+		final int angle = Camera.getCompassAngle();
+		final Frame frame = capture(bounds);
+		return angle < 0 ? getAll(frame, bounds) : getAll(frame, bounds, angle);
+	}
+
+	/**
+	 * Gets the first valid location point within a bounded area of a frame, in every orientation.
+	 * @param frame The frame to search.
+	 * @param bounds The bounds to search within.
+	 * @return The first match; or null if none.
+	 */
+	public DTMMatch getFirst(final Frame frame, final Rectangle bounds) {
+		final DTMMatch[] matches = search(frame, bounds, null, true);
+		return matches.length == 0 ? null : matches[0];
+	}
+
+	/**
+	 * Gets the first valid location point within a bounded area, in every orientation.
+	 * @param bounds The bounds to search within.
+	 * @return The first match; or null if none.
+	 */
+	public DTMMatch getFirst(final Rectangle bounds) {
+		return getFirst(capture(bounds), bounds);
+	}
+
+	/**
+	 * Gets the first valid location point within a bounded area, in the orientations nearest to the current compass
+	 * angle; or in every orientation if the compass cannot be read.
+	 * @param bounds The bounds to search within.
+	 * @return The first match; or null if none.
+	 */
+	public DTMMatch getFirstAtCompass(final Rectangle bounds) {
+		final int angle = Camera.getCompassAngle();
+		final DTMMatch[] matches = search(capture(bounds), bounds, angle < 0 ? null : getNearestAngle(angle), true);
+		return matches.length == 0 ? null : matches[0];
+	}
+
+	/**
+	 * Gets the index of the angle searched at nearest to a compass angle.
+	 */
+	private int getNearestAngle(final int angle) {
+		final int degrees = ((angle % 360) + 360) % 360;
+		int nearest = 0;
+		for (int a = 1; a < angles.length; a++) {
+			if (getDistance(angles[a], degrees) < getDistance(angles[nearest], degrees)) {
+				nearest = a;
+			}
+		}
+		return nearest;
+	}
+
+	private static int getDistance(final int first, final int second) {
+		final int distance = Math.abs(first - second);
+		return Math.min(distance, 360 - distance);
+	}
+
+	/**
+	 * Searches for valid location points within the bounds of a frame, in parallel for large bounds.
+	 * @param frame The frame to search.
+	 * @param bounds The bounds of the root point.
+	 * @param angle The index of the only angle to check; or null to check every angle.
+	 * @param first <tt>true</tt> to stop after the first valid location point.
+	 * @return The matches, in row-major order.
+	 */
+	private DTMMatch[] search(final Frame frame, final Rectangle bounds, final Integer angle, final boolean first) {
+		final int[] pixels = frame.getPixels();
+		final int[][] offsets = new int[orientations.length][];
+		final Rectangle[] interiors = new Rectangle[orientations.length];
+		final boolean[] checked = new boolean[orientations.length];
+		for (int o = 0; o < orientations.length; o++) {
+			checked[o] = angle == null || o % angles.length == angle;
+			offsets[o] = orientations[o].getOffsets(frame);
+			interiors[o] = orientations[o].getInterior(frame);
+		}
+		final PointBuffer found = new PointBuffer();
+		ParallelSearch.search(bounds.intersection(frame.getBounds()), new ParallelSearch.Search() {
+			public int search(final Rectangle band, final PointBuffer points, final boolean stop) {
+				final PointBuffer roots = ImageUtil.getPointsWithColor(frame, band, dtm.getRoot().getMatcher(),
+						new PointBuffer());
+				int count = 0;
+				for (int i = 0; i < roots.size(); i++) {
+					final int x = roots.getX(i);
+					final int y = roots.getY(i);
+					final int index = frame.indexOf(x, y);
+					for (int o = 0; o < orientations.length; o++) {
+						if (checked[o] && isValidAt(frame, pixels, o, offsets[o], interiors[o], index, x, y)) {
+							points.add(x, y);
+							count++;
+							break;
+						}
+					}
+					if (stop && count > 0) {
+						break;
+					}
+				}
+				return count;
+			}
+		}, found, first);
+		// the orientations of the few points found are worked out afterwards, rather than for every root point
+		final DTMMatch[] matches = new DTMMatch[found.size()];
+		final boolean[] valid = new boolean[angles.length];
+		for (int i = 0; i < matches.length; i++) {
+			final int x = found.getX(i), y = found.getY(i);
+			final int index = frame.indexOf(x, y);
+			int bestAngle = 0, bestScale = 0, bestLength = 0;
+			for (int s = 0; s < scales.length; s++) {
+				for (int a = 0; a < angles.length; a++) {
+					final int o = s * angles.length + a;
+					valid[a] = checked[o] && isValidAt(frame, pixels, o, offsets[o], interiors[o], index, x, y);
+				}
+				final int[] run = getLongestRun(valid);
+				if (run[1] > bestLength) {
+					bestLength = run[1];
+					bestAngle = run[0];
+					bestScale = s;
+				}
+			}
+			matches[i] = new DTMMatch(x, y, angles[bestAngle], scales[bestScale]);
+		}
+		return matches;
+	}
+
+	private boolean isValidAt(final Frame frame, final int[] pixels, final int orientation, final int[] offsets,
+			final Rectangle interior, final int index, final int x, final int y) {
+		final CompiledDTM compiled = orientations[orientation];
+		return interior.contains(x, y) ? compiled.isValidAt(pixels, index, offsets) : compiled.isValidAt(frame, x, y);
+	}
+
+	/**
+	 * Finds the longest run of consecutive valid angles, wrapping around the compass.
+	 * @param valid The validity of each angle.
+	 * @return The index of the middle angle of the run, followed by the length of the run; an angle of 0 if every
+	 * angle is valid.
+	 */
+	private static int[] getLongestRun(final boolean[] valid) {
+		final int n = valid.length;
+		int start = 0;
+		while (start < n && valid[start]) {
+			start++;
+		}
+		if (start == n) {
+			return new int[] { 0, n };
+		}
+		// runs are measured from an invalid angle, so that none is split by the wrap
+		int middle = 0, longest = 0, length = 0;
+		for (int i = 1; i <= n; i++) {
+			final int a = (start + i) % n;
+			if (valid[a]) {
+				length++;
+			} else {
+				if (length > longest) {
+					longest = length;
+					middle = (a - length + (length - 1) / 2 + n) % n;
+				}
+				length = 0;
+			}
+		}
+		return new int[] { middle, longest };
+	}
+
+	/**
+	 * Captures the part of the game image which the DTM can cover in any orientation when its root lies within given
+	 * bounds.
+	 */
+	private Frame capture(final Rectangle bounds) {
+		return Game.getFrame(new Rectangle(bounds.x - reach, bounds.y - reach,
+				bounds.width + reach * 2, bounds.height + reach * 2));
+	}
+
+}
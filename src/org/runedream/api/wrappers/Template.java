@@ -0,0 +1,833 @@
+package org.runedream.api.wrappers;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import org.runedream.api.methods.FFT;
+import org.runedream.api.methods.Frame;
+import org.runedream.api.methods.Game;
+import org.runedream.api.methods.ImagePyramid;
+import org.runedream.api.methods.IntegralImage;
+import org.runedream.api.methods.ParallelSearch;
+import org.runedream.api.util.PointBuffer;
+
+/**
+ * An image to be searched for within frames, such as an item or interface sprite.
+ * <br>
+ * Only the opaque pixels of a template are matched, so sprites with transparent backgrounds match regardless of what
+ * they are drawn over. The opaque pixels are compiled into runs per row, so that transparent pixels cost nothing to
+ * match. A template without any opaque pixels matches everywhere, with a perfect score, as in a
+ * {@link PatternIndex}.
+ * <br>
+ * Candidates are rejected early: first by comparing sums over the candidate area, which an integral image of the
+ * searched frame gives in constant time, then row by row as soon as the score can no longer meet the threshold. The
+ * integral image is shared by all searches of the same frame, and not built at all for templates with transparent
+ * pixels, whose sums cover only their opaque pixels.
+ * <br>
+ * Searching an {@link ImagePyramid} first compares the channel sums of the downsampled cells covered by a candidate to
+ * those of the template, ruling out most candidates at a fraction of the cost. Since the sums of the differences bound
+ * the differences of the sums, no match is missed, and every match is confirmed at full resolution. This applies to the
+ * SAD and SSD metrics; NCC searches run at full resolution only.
+ * <br>
+ * SSD and NCC searches of large templates over large areas are run in the frequency domain instead: the cross terms of
+ * all candidates at once are the inverse transform of the product of the transforms of the area and the template, and
+ * the remaining sums come from an integral image. The transforms of the template are cached for the padded size of the
+ * last area searched, so that repeated searches only transform the area. The domain is picked by estimating the cost
+ * of both. Templates with transparent pixels are always searched in the spatial domain.
+ *
+ * @see Match
+ */
+public class Template {
+
+	/**
+	 * An enumeration of template matching metrics.
+	 */
+	public enum Metric {
+		/**
+		 * The mean absolute difference of the channel values, from 0 (identical) to 255. Matches when at most the threshold.
+		 */
+		SAD,
+		/**
+		 * The root mean square difference of the channel values, from 0 (identical) to 255. Matches when at most the threshold.
+		 */
+		SSD,
+		/**
+		 * The normalized cross-correlation of the channel values, from -1 to 1 (identical up to brightness and contrast).
+		 * Matches when at least the threshold.
+		 */
+		NCC
+	}
+
+	private static final double EPSILON = 1e-9;
+	/**
+	 * The estimated cost of a frequency domain search per padded pixel and halving of the padded area, relative to the
+	 * cost of comparing a pixel in the spatial domain.
+	 */
+	private static final int FREQUENCY_COST = 20;
+	/**
+	 * The estimated amount of rows compared per candidate by a spatial SSD search before giving up.
+	 */
+	private static final int SSD_ROWS = 8;
+
+	private final int width;
+	private final int height;
+	private final int[] pixels;
+	private final int[] runs;
+	private final int[] rowRuns;
+	private final boolean masked;
+	private final int samples;
+	private final long sum;
+	private final long squareSum;
+	private final long[] rowSquares;
+	private final int level;
+	private final int[][] blocks;
+	private volatile Spectrum spectrum;
+
+	/**
+	 * Constructs a Template of an image.
+	 * @param image The image to search for.
+	 */
+	public Template(final BufferedImage image) {
+		this(Frame.capture(image));
+	}
+
+	/**
+	 * Constructs a Template of a frame. Fully transparent pixels are not matched.
+	 * @param frame The frame to search for.
+	 */
+	public Template(final Frame frame) {
+		this(frame, null);
+	}
+
+	/**
+	 * Constructs a Template of a frame, matching only the pixels of a given mask.
+	 * @param frame The frame to search for.
+	 * @param mask Whether to match each pixel of the frame, in row-major order; or null to match every pixel which is
+	 * not fully transparent.
+	 */
+	public Template(final Frame frame, final boolean[] mask) {
+		this.width = frame.getWidth();
+		this.height = frame.getHeight();
+		this.pixels = new int[width * height];
+		this.rowRuns = new int[height + 1];
+		final int[] source = frame.getPixels();
+		// runs of opaque pixels as pairs of their first x coordinate and their length
+		int[] runs = new int[height * 2];
+		int count = 0, opaque = 0;
+		for (int y = 0, i = 0; y < height; y++) {
+			rowRuns[y] = count;
+			for (int x = 0; x < width; x++, i++) {
+				if (mask != null ? !mask[i] : source[i] >>> 24 == 0) {
+					continue;
+				}
+				// transparent pixels are left zero, and opaque pixels made fully opaque
+				pixels[i] = source[i] | 0xFF000000;
+				opaque++;
+				if (x == 0 || pixels[i - 1] == 0) {
+					if (count * 2 == runs.length) {
+						runs = Arrays.copyOf(runs, runs.length * 2 + 2);
+					}
+					runs[count * 2] = x;
+					count++;
+				}
+				runs[count * 2 - 1]++;
+			}
+		}
+		rowRuns[height] = count;
+		this.runs = Arrays.copyOf(runs, count * 2);
+		this.masked = opaque < width * height;
+		this.samples = opaque * 3;
+		this.rowSquares = new long[height + 1];
+		long sum = 0;
+		for (int y = height - 1; y >= 0; y--) {
+			long square = 0;
+			for (int x = 0; x < width; x++) {
+				final int p = pixels[y * width + x];
+				final int r = (p >> 16) & 0xFF, g = (p >> 8) & 0xFF, b = p & 0xFF;
+				sum += r + g + b;
+				square += r * r + g * g + b * b;
+			}
+			rowSquares[y] = rowSquares[y + 1] + square;
+		}
+		this.sum = sum;
+		this.squareSum = rowSquares[0];
+		int level = 0;
+		while (level < 2 && Math.min(width, height) >= 4 << level) {
+			level++;
+		}
+		this.level = level;
+		// every phase is built up front, as searches read them from several threads at once
+		final int scale = 1 << level;
+		this.blocks = new int[scale * scale][];
+		for (int top = 0; top < scale; top++) {
+			for (int left = 0; left < scale; left++) {
+				blocks[top * scale + left] = sumBlocks(left, top);
+			}
+		}
+	}
+
+	/**
+	 * Gets the channel sums of the blocks of the template lying on the cells of the pyramid level searched, for a
+	 * candidate whose first full cell starts a given amount of pixels right of and below its upper left corner.
+	 */
+	private int[] sumBlocks(final int left, final int top) {
+		final int columns = (width - left) >> level;
+		final int rows = (height - top) >> level;
+		final int[] sums = new int[columns * rows * 3];
+		final boolean[] transparent = new boolean[columns * rows];
+		for (int y = top; y < top + (rows << level); y++) {
+			for (int x = left; x < left + (columns << level); x++) {
+				final int p = pixels[y * width + x];
+				final int i = (((y - top) >> level) * columns + ((x - left) >> level)) * 3;
+				sums[i] += (p >> 16) & 0xFF;
+				sums[i + 1] += (p >> 8) & 0xFF;
+				sums[i + 2] += p & 0xFF;
+				transparent[i / 3] |= p == 0;
+			}
+		}
+		// blocks with transparent pixels can not be compared to the sums of whole cells
+		for (int i = 0; i < transparent.length; i++) {
+			if (transparent[i]) {
+				sums[i * 3] = -1;
+			}
+		}
+		return sums;
+	}
+
+	/**
+	 * Checks if the template could match the area with a given upper left corner, judged by the cells of a pyramid level
+	 * lying within the area.
+	 */
+	private boolean mayMatch(final ImagePyramid.Level cells, final int x, final int y, final Metric metric, final double threshold) {
+		final int scale = 1 << level;
+		final int column = cells.toColumn(x + scale - 1);
+		final int row = cells.toRow(y + scale - 1);
+		final int left = cells.toX(column) - x;
+		final int top = cells.toY(row) - y;
+		final int columns = (width - left) >> level;
+		final int rows = (height - top) >> level;
+		final int[] sums = blocks[top * scale + left];
+		// per channel, the sum of the differences within a cell is at most the sum of the absolute differences,
+		// and its square over the cell size at most the sum of the squared differences
+		final double limit = metric == Metric.SAD ? threshold * samples : threshold * threshold * samples * scale * scale;
+		long total = 0;
+		for (int j = 0, i = 0; j < rows; j++) {
+			for (int c = 0; c < columns; c++, i += 3) {
+				if (sums[i] < 0) {
+					continue;
+				}
+				final int dr = cells.getRedSum(column + c, row + j) - sums[i];
+				final int dg = cells.getGreenSum(column + c, row + j) - sums[i + 1];
+				final int db = cells.getBlueSum(column + c, row + j) - sums[i + 2];
+				if (metric == Metric.SAD) {
+					total += Math.abs(dr) + Math.abs(dg) + Math.abs(db);
+				} else {
+					total += (long) dr * dr + (long) dg * dg + (long) db * db;
+				}
+			}
+			if (total > limit) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the width of the template.
+	 * @return The width.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the height of the template.
+	 * @return The height.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Gets the RGB value of a pixel of the template.
+	 * @param x The x coordinate of the pixel.
+	 * @param y The y coordinate of the pixel.
+	 * @return The RGB value; 0 if the pixel is not matched.
+	 */
+	public int getRGB(final int x, final int y) {
+		return pixels[y * width + x];
+	}
+
+	/**
+	 * Checks if the template is the one {@link #Template(Frame)} would build of a frame, without building it.
+	 * @param frame The frame.
+	 * @return <tt>true</tt> if the frame has the same size and, ignoring alpha, the same opaque pixels as the template,
+	 * and the same fully transparent pixels; otherwise <tt>false</tt>.
+	 */
+	public boolean isOf(final Frame frame) {
+		if (frame.getWidth() != width || frame.getHeight() != height) {
+			return false;
+		}
+		final int[] source = frame.getPixels();
+		for (int i = 0; i < source.length; i++) {
+			final int p = source[i];
+			if ((p >>> 24 == 0 ? 0 : p | 0xFF000000) != pixels[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the template has pixels which are not matched.
+	 * @return <tt>true</tt> if some pixels are transparent; otherwise <tt>false</tt>.
+	 */
+	public boolean isMasked() {
+		return masked;
+	}
+
+	/**
+	 * Checks if every matched pixel of the template equals that of the area of a frame with a given upper left corner, ignoring
+	 * alpha. The area must lie within the frame.
+	 */
+	boolean equals(final Frame frame, final int x, final int y) {
+		final int[] data = frame.getPixels();
+		for (int row = 0; row < height; row++) {
+			final int base = frame.indexOf(x, y + row);
+			for (int run = rowRuns[row]; run < rowRuns[row + 1]; run++) {
+				final int start = runs[run * 2];
+				for (int i = base + start, j = row * width + start, end = j + runs[run * 2 + 1]; j < end; i++, j++) {
+					if (((data[i] ^ pixels[j]) & 0xFFFFFF) != 0) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Scores the template against the area of a frame with a given upper left corner. The area must lie within the frame.
+	 * @param frame The frame to score against.
+	 * @param x The x coordinate of the upper left corner.
+	 * @param y The y coordinate of the upper left corner.
+	 * @param metric The metric to score by.
+	 * @return The score; 0 for SAD and SSD, and 1 for NCC, if the template has no opaque pixels.
+	 */
+	public double score(final Frame frame, final int x, final int y, final Metric metric) {
+		if (samples == 0) {
+			return metric == Metric.NCC ? 1 : 0;
+		}
+		final int[] data = frame.getPixels();
+		long total = 0, cross = 0, frameSum = 0, frameSquares = 0;
+		for (int row = 0; row < height; row++) {
+			final int base = frame.indexOf(x, y + row);
+			for (int run = rowRuns[row]; run < rowRuns[row + 1]; run++) {
+				final int start = runs[run * 2];
+				for (int i = base + start, j = row * width + start, end = j + runs[run * 2 + 1]; j < end; i++, j++) {
+					final int p = data[i], t = pixels[j];
+					final int r = (p >> 16) & 0xFF, g = (p >> 8) & 0xFF, b = p & 0xFF;
+					final int dr = r - ((t >> 16) & 0xFF), dg = g - ((t >> 8) & 0xFF), db = b - (t & 0xFF);
+					switch (metric) {
+					case SAD:
+						total += Math.abs(dr) + Math.abs(dg) + Math.abs(db);
+						break;
+					case SSD:
+						total += dr * dr + dg * dg + db * db;
+						break;
+					default:
+						cross += r * ((t >> 16) & 0xFF) + g * ((t >> 8) & 0xFF) + b * (t & 0xFF);
+						frameSum += r + g + b;
+						frameSquares += r * r + g * g + b * b;
+					}
+				}
+			}
+		}
+		switch (metric) {
+		case SAD:
+			return (double) total / samples;
+		case SSD:
+			return Math.sqrt((double) total / samples);
+		default:
+			return correlation(cross, frameSum, frameSquares);
+		}
+	}
+
+	private double correlation(final double cross, final double frameSum, final double frameSquares) {
+		final double templateVariance = squareSum - (double) sum * sum / samples;
+		final double frameVariance = frameSquares - frameSum * frameSum / samples;
+		if (templateVariance <= 0 || frameVariance <= 0) {
+			return templateVariance <= 0 && frameVariance <= 0 ? 1 : 0;
+		}
+		return (cross - sum * frameSum / samples) / Math.sqrt(templateVariance * frameVariance);
+	}
+
+	/**
+	 * Checks if the template matches the area of a frame with a given upper left corner, giving up as soon as it can not.
+	 */
+	private boolean matches(final Frame frame, final IntegralImage integral, final int x, final int y,
+			final Metric metric, final double threshold) {
+		if (samples == 0) {
+			return true;
+		}
+		final int[] data = frame.getPixels();
+		if (metric == Metric.NCC) {
+			if (masked) {
+				// the sums of the frame under the opaque pixels are only known once every pixel has been visited
+				return score(frame, x, y, metric) >= threshold - EPSILON;
+			}
+			final long frameSum = integral.getSum(x, y, width, height);
+			final double frameSquares = integral.getSquareSum(x, y, width, height);
+			final double templateVariance = squareSum - (double) sum * sum / samples;
+			final double frameVariance = frameSquares - (double) frameSum * frameSum / samples;
+			if (templateVariance <= 0 || frameVariance <= 0) {
+				return correlation(0, frameSum, frameSquares) >= threshold;
+			}
+			final double mean = (double) sum * frameSum / samples;
+			final double deviation = Math.sqrt(templateVariance * frameVariance);
+			long cross = 0;
+			for (int row = 0; row < height; row++) {
+				for (int i = frame.indexOf(x, y + row), j = row * width, end = j + width; j < end; i++, j++) {
+					final int p = data[i], t = pixels[j];
+					cross += ((p >> 16) & 0xFF) * ((t >> 16) & 0xFF) + ((p >> 8) & 0xFF) * ((t >> 8) & 0xFF) + (p & 0xFF) * (t & 0xFF);
+				}
+				// the remaining rows can add at most the product of their norms (Cauchy-Schwarz)
+				final double rest = Math.sqrt((double) rowSquares[row + 1]
+						* integral.getSquareSum(x, y + row + 1, width, height - row - 1));
+				if ((cross + rest - mean) / deviation < threshold - EPSILON) {
+					return false;
+				}
+			}
+			return true;
+		}
+		final double limit = metric == Metric.SAD ? threshold * samples : threshold * threshold * samples;
+		if (!masked) {
+			final long difference = Math.abs(integral.getSum(x, y, width, height) - sum);
+			// the sums differ by no more than the summed differences, and their squares by no more than the squared differences
+			if (metric == Metric.SAD ? difference > limit : (double) difference * difference / samples > limit) {
+				return false;
+			}
+		}
+		long total = 0;
+		for (int row = 0; row < height; row++) {
+			final int base = frame.indexOf(x, y + row);
+			for (int run = rowRuns[row]; run < rowRuns[row + 1]; run++) {
+				final int start = runs[run * 2];
+				for (int i = base + start, j = row * width + start, end = j + runs[run * 2 + 1]; j < end; i++, j++) {
+					final int p = data[i], t = pixels[j];
+					final int dr = ((p >> 16) & 0xFF) - ((t >> 16) & 0xFF);
+					final int dg = ((p >> 8) & 0xFF) - ((t >> 8) & 0xFF);
+					final int db = (p & 0xFF) - (t & 0xFF);
+					if (metric == Metric.SAD) {
+						total += Math.abs(dr) + Math.abs(dg) + Math.abs(db);
+					} else {
+						total += dr * dr + dg * dg + db * db;
+					}
+				}
+			}
+			if (total > limit) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the template matches an area of a frame with a given upper left corner, given the sum of the products
+	 * of the channel values of the area and the template.
+	 */
+	private boolean matches(final IntegralImage integral, final int x, final int y, final long cross,
+			final Metric metric, final double threshold) {
+		if (samples == 0) {
+			return true;
+		}
+		final long frameSum = integral.getSum(x, y, width, height);
+		final long frameSquares = integral.getSquareSum(x, y, width, height);
+		if (metric == Metric.SSD) {
+			return frameSquares - 2 * cross + squareSum <= threshold * threshold * samples;
+		}
+		final double templateVariance = squareSum - (double) sum * sum / samples;
+		final double frameVariance = frameSquares - (double) frameSum * frameSum / samples;
+		if (templateVariance <= 0 || frameVariance <= 0) {
+			return correlation(0, frameSum, frameSquares) >= threshold;
+		}
+		final double mean = (double) sum * frameSum / samples;
+		return (cross - mean) / Math.sqrt(templateVariance * frameVariance) >= threshold - EPSILON;
+	}
+
+	/**
+	 * Checks if searching an area for the template is estimated to be faster in the frequency domain.
+	 */
+	private boolean isFrequencyFaster(final Rectangle area, final Metric metric) {
+		if (metric == Metric.SAD || masked) {
+			return false;
+		}
+		final long padded = (long) FFT.getSize(area.width) * FFT.getSize(area.height);
+		// NCC candidates are seldom given up early, whereas SSD candidates are mostly given up within the first rows
+		final int rows = metric == Metric.NCC ? height : Math.min(height, SSD_ROWS);
+		final long spatial = (long) (area.width - width + 1) * (area.height - height + 1) * width * rows;
+		return padded * Long.numberOfTrailingZeros(padded) * FREQUENCY_COST < spatial;
+	}
+
+	/**
+	 * The transforms of the channels of a template, padded to a given size. As the transforms of real data are
+	 * conjugate symmetric, only the left half of the columns is kept.
+	 */
+	private static final class Spectrum {
+
+		private final int width;
+		private final int height;
+		private final int columns;
+		private final double[][] re = new double[3][];
+		private final double[][] im = new double[3][];
+
+		private Spectrum(final Template template, final int width, final int height) {
+			this.width = width;
+			this.height = height;
+			this.columns = width / 2 + 1;
+			final double[][] full = transform(template.pixels, template.width, 0, 0, template.width, template.height,
+					width, height);
+			for (int c = 0; c < 3; c++) {
+				re[c] = new double[height * columns];
+				im[c] = new double[height * columns];
+				for (int row = 0; row < height; row++) {
+					System.arraycopy(full[c * 2], row * width, re[c], row * columns, columns);
+					System.arraycopy(full[c * 2 + 1], row * width, im[c], row * columns, columns);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Transforms the channels of a region of pixels, padded with zeros to a given size.
+	 * @return The real and imaginary parts of the transforms of the red, green and blue channels, in that order.
+	 */
+	private static double[][] transform(final int[] data, final int stride, final int x, final int y,
+			final int width, final int height, final int paddedWidth, final int paddedHeight) {
+		final int size = paddedWidth * paddedHeight;
+		final double[] red = new double[size], green = new double[size], blue = new double[size];
+		for (int row = 0; row < height; row++) {
+			for (int col = 0, i = (y + row) * stride + x, j = row * paddedWidth; col < width; col++, i++, j++) {
+				final int p = data[i];
+				red[j] = (p >> 16) & 0xFF;
+				green[j] = (p >> 8) & 0xFF;
+				blue[j] = p & 0xFF;
+			}
+		}
+		final double[] redIm = new double[size], greenIm = new double[size], blueIm = new double[size];
+		FFT.transformReal(red, green, redIm, greenIm, paddedWidth, paddedHeight);
+		FFT.transform(blue, blueIm, paddedWidth, paddedHeight, false);
+		return new double[][] { red, redIm, green, greenIm, blue, blueIm };
+	}
+
+	/**
+	 * Gets the transforms of the template padded to a given size, reusing those of the last search when possible.
+	 */
+	private Spectrum getSpectrum(final int paddedWidth, final int paddedHeight) {
+		Spectrum spectrum = this.spectrum;
+		if (spectrum == null || spectrum.width != paddedWidth || spectrum.height != paddedHeight) {
+			spectrum = new Spectrum(this, paddedWidth, paddedHeight);
+			this.spectrum = spectrum;
+		}
+		return spectrum;
+	}
+
+	/**
+	 * Correlates the template with an area of a frame in the frequency domain.
+	 * @return The sums of the products of the channel values of the template and of the area with each upper left
+	 * corner, indexed by the offset of the corner from that of the area, with rows of the padded width of the area.
+	 */
+	private double[] correlate(final Frame frame, final Rectangle area) {
+		final int paddedWidth = FFT.getSize(area.width);
+		final int paddedHeight = FFT.getSize(area.height);
+		final Spectrum spectrum = getSpectrum(paddedWidth, paddedHeight);
+		final double[][] transforms = transform(frame.getPixels(), frame.getWidth(), area.x - frame.getX(),
+				area.y - frame.getY(), area.width, area.height, paddedWidth, paddedHeight);
+		final double[] re = new double[paddedWidth * paddedHeight];
+		final double[] im = new double[re.length];
+		for (int row = 0, i = 0; row < paddedHeight; row++) {
+			final int mirrorRow = (paddedHeight - row) & (paddedHeight - 1);
+			for (int column = 0; column < paddedWidth; column++, i++) {
+				// the right half of the template transforms mirrors the left half, conjugated
+				final boolean left = column < spectrum.columns;
+				final int j = left ? row * spectrum.columns + column : mirrorRow * spectrum.columns + paddedWidth - column;
+				double r = 0, m = 0;
+				for (int c = 0; c < 3; c++) {
+					final double fr = transforms[c * 2][i], fi = transforms[c * 2 + 1][i];
+					final double tr = spectrum.re[c][j], ti = left ? spectrum.im[c][j] : -spectrum.im[c][j];
+					r += fr * tr + fi * ti;
+					m += fi * tr - fr * ti;
+				}
+				re[i] = r;
+				im[i] = m;
+			}
+		}
+		FFT.transform(re, im, paddedWidth, paddedHeight, true);
+		return re;
+	}
+
+	/**
+	 * Searches an area for the template in the frequency domain, appending the upper left corners of matches in
+	 * row-major order.
+	 * @return The amount of matches found.
+	 */
+	private int correlate(final Frame frame, final Rectangle area, final Metric metric, final double threshold,
+			final PointBuffer buffer, final boolean first) {
+		final IntegralImage integral = IntegralImage.of(frame, area);
+		final double[] cross = correlate(frame, area);
+		final int stride = FFT.getSize(area.width);
+		int count = 0;
+		for (int y = area.y; y <= area.y + area.height - height; y++) {
+			for (int x = area.x, i = (y - area.y) * stride; x <= area.x + area.width - width; x++, i++) {
+				// the cross terms are whole numbers, so rounding removes the error of the transforms
+				if (matches(integral, x, y, Math.round(cross[i]), metric, threshold)) {
+					if (buffer != null) {
+						buffer.add(x, y);
+					}
+					count++;
+					if (first) {
+						return count;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Searches for the template, appending the upper left corners of matches in row-major order.
+	 * @return The amount of matches found.
+	 */
+	private int search(final Frame frame, final ImagePyramid pyramid, final Rectangle bounds, final Metric metric,
+			final double threshold, final PointBuffer buffer, final boolean first) {
+		final Rectangle area = bounds.intersection(frame.getBounds());
+		if (area.width < width || area.height < height) {
+			return 0;
+		}
+		if (isFrequencyFaster(area, metric)) {
+			return correlate(frame, area, metric, threshold, buffer, first);
+		}
+		// masked templates are never compared by the sums of their area
+		final IntegralImage integral = masked ? null : IntegralImage.of(frame, area);
+		final ImagePyramid.Level cells = pyramid != null && level > 0 && metric != Metric.NCC ? pyramid.getLevel(level) : null;
+		final Rectangle corners = new Rectangle(area.x, area.y, area.width - width + 1, area.height - height + 1);
+		return ParallelSearch.search(corners, new ParallelSearch.Search() {
+			public int search(final Rectangle band, final PointBuffer points, final boolean stop) {
+				int count = 0;
+				for (int y = band.y; y < band.y + band.height; y++) {
+					for (int x = band.x; x < band.x + band.width; x++) {
+						if ((cells == null || mayMatch(cells, x, y, metric, threshold))
+								&& matches(frame, integral, x, y, metric, threshold)) {
+							if (points != null) {
+								points.add(x, y);
+							}
+							count++;
+							if (stop) {
+								return count;
+							}
+						}
+					}
+				}
+				return count;
+			}
+		}, buffer, first);
+	}
+
+	/**
+	 * Gets the upper left corners of all matches of the template lying within bounds of a frame.
+	 * @param frame The frame to search.
+	 * @param bounds The bounds the matches must lie within.
+	 * @param metric The metric to match by.
+	 * @param threshold The threshold to match within.
+	 * @param buffer The buffer to append the upper left corners of matches to, in row-major order.
+	 * @return The given buffer.
+	 */
+	public PointBuffer getAll(final Frame frame, final Rectangle bounds, final Metric metric, final double threshold,
+			final PointBuffer buffer) {
+		search(frame, null, bounds, metric, threshold, buffer, false);
+		return buffer;
+	}
+
+	/**
+	 * Gets all matches of the template lying within bounds of a frame.
+	 * @param frame The frame to search.
+	 * @param bounds The bounds the matches must lie within.
+	 * @param metric The metric to match by.
+	 * @param threshold The threshold to match within.
+	 * @return The matches, in row-major order of their upper left corners.
+	 */
+	public Match[] getAll(final Frame frame, final Rectangle bounds, final Metric metric, final double threshold) {
+		final PointBuffer points = getAll(frame, bounds, metric, threshold, new PointBuffer());
+		final Match[] matches = new Match[points.size()];
+		for (int i = 0; i < matches.length; i++) {
+			matches[i] = toMatch(frame, points.getX(i), points.getY(i), metric);
+		}
+		return matches;
+	}
+
+	/**
+	 * Gets all matches of the template lying within bounds of the game image.
+	 * @param bounds The bounds the matches must lie within.
+	 * @param metric The metric to match by.
+	 * @param threshold The threshold to match within.
+	 * @return The matches, in row-major order of their upper left corners.
+	 */
+	public Match[] getAll(final Rectangle bounds, final Metric metric, final double threshold) {
+		return getAll(Game.getFrame(bounds), bounds, metric, threshold);
+	}
+
+	/**
+	 * Gets the first match of the template lying within bounds of a frame, in row-major order.
+	 * @param frame The frame to search.
+	 * @param bounds The bounds the match must lie within.
+	 * @param metric The metric to match by.
+	 * @param threshold The threshold to match within.
+	 * @return The first match; or null if none found.
+	 */
+	public Match getFirst(final Frame frame, final Rectangle bounds, final Metric metric, final double threshold) {
+		final PointBuffer points = new PointBuffer(1);
+		if (search(frame, null, bounds, metric, threshold, points, true) == 0) {
+			return null;
+		}
+		return toMatch(frame, points.getX(0), points.getY(0), metric);
+	}
+
+	/**
+	 * Gets the first match of the template lying within bounds of the game image, in row-major order.
+	 * @param bounds The bounds the match must lie within.
+	 * @param metric The metric to match by.
+	 * @param threshold The threshold to match within.
+	 * @return The first match; or null if none found.
+	 */
+	public Match getFirst(final Rectangle bounds, final Metric metric, final double threshold) {
+		return getFirst(Game.getFrame(bounds), bounds, metric, threshold);
+	}
+
+	/**
+	 * Gets the upper left corners of all matches of the template lying within bounds of the frame of a pyramid.
+	 * @param pyramid The pyramid of the frame to search.
+	 * @param bounds The bounds the matches must lie within.
+	 * @param metric The metric to match by.
+	 * @param threshold The threshold to match within.
+	 * @param buffer The buffer to append the upper left corners of matches to, in row-major order.
+	 * @return The given buffer.
+	 */
+	public PointBuffer getAll(final ImagePyramid pyramid, final Rectangle bounds, final Metric metric,
+			final double threshold, final PointBuffer buffer) {
+		search(pyramid.getFrame(), pyramid, bounds, metric, threshold, buffer, false);
+		return buffer;
+	}
+
+	/**
+	 * Gets all matches of the template lying within bounds of the frame of a pyramid.
+	 * @param pyramid The pyramid of the frame to search.
+	 * @param bounds The bounds the matches must lie within.
+	 * @param metric The metric to match by.
+	 * @param threshold The threshold to match within.
+	 * @return The matches, in row-major order of their upper left corners.
+	 */
+	public Match[] getAll(final ImagePyramid pyramid, final Rectangle bounds, final Metric metric, final double threshold) {
+		final Frame frame = pyramid.getFrame();
+		final PointBuffer points = getAll(pyramid, bounds, metric, threshold, new PointBuffer());
+		final Match[] matches = new Match[points.size()];
+		for (int i = 0; i < matches.length; i++) {
+			matches[i] = toMatch(frame, points.getX(i), points.getY(i), metric);
+		}
+		return matches;
+	}
+
+	/**
+	 * Gets the first match of the template lying within bounds of the frame of a pyramid, in row-major order.
+	 * @param pyramid The pyramid of the frame to search.
+	 * @param bounds The bounds the match must lie within.
+	 * @param metric The metric to match by.
+	 * @param threshold The threshold to match within.
+	 * @return The first match; or null if none found.
+	 */
+	public Match getFirst(final ImagePyramid pyramid, final Rectangle bounds, final Metric metric, final double threshold) {
+		final PointBuffer points = new PointBuffer(1);
+		if (search(pyramid.getFrame(), pyramid, bounds, metric, threshold, points, true) == 0) {
+			return null;
+		}
+		return toMatch(pyramid.getFrame(), points.getX(0), points.getY(0), metric);
+	}
+
+	/**
+	 * Checks if the template matches anywhere within bounds of the frame of a pyramid.
+	 * @param pyramid The pyramid of the frame to search.
+	 * @param bounds The bounds the match must lie within.
+	 * @param metric The metric to match by.
+	 * @param threshold The threshold to match within.
+	 * @return <tt>true</tt> if a match was found; otherwise <tt>false</tt>.
+	 */
+	public boolean isValid(final ImagePyramid pyramid, final Rectangle bounds, final Metric metric, final double threshold) {
+		return search(pyramid.getFrame(), pyramid, bounds, metric, threshold, null, true) > 0;
+	}
+
+	/**
+	 * Gets the best scoring location of the template lying within bounds of a frame.
+	 * @param frame The frame to search.
+	 * @param bounds The bounds the match must lie within.
+	 * @param metric The metric to match by.
+	 * @return The best match; or null if the template does not fit within the bounds.
+	 */
+	public Match getBest(final Frame frame, final Rectangle bounds, final Metric metric) {
+		final Rectangle area = bounds.intersection(frame.getBounds());
+		if (area.width < width || area.height < height) {
+			return null;
+		}
+		// masked templates are never compared by the sums of their area
+		final IntegralImage integral = masked ? null : IntegralImage.of(frame, area);
+		Match best = null;
+		for (int y = area.y; y <= area.y + area.height - height; y++) {
+			for (int x = area.x; x <= area.x + area.width - width; x++) {
+				// candidates which can not beat the best so far are given up early
+				if (best == null || matches(frame, integral, x, y, metric, best.getScore())) {
+					final Match match = toMatch(frame, x, y, metric);
+					if (best == null || (metric == Metric.NCC ? match.getScore() > best.getScore() : match.getScore() < best.getScore())) {
+						best = match;
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Checks if the template matches anywhere within bounds of a frame.
+	 * @param frame The frame to search.
+	 * @param bounds The bounds the match must lie within.
+	 * @param metric The metric to match by.
+	 * @param threshold The threshold to match within.
+	 * @return <tt>true</tt> if a match was found; otherwise <tt>false</tt>.
+	 */
+	public boolean isValid(final Frame frame, final Rectangle bounds, final Metric metric, final double threshold) {
+		return search(frame, null, bounds, metric, threshold, null, true) > 0;
+	}
+
+	private Match toMatch(final Frame frame, final int x, final int y, final Metric metric) {
+		return new Match(x, y, width, height, score(frame, x, y, metric));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(final Object object) {
+		if (object instanceof Template) {
+			final Template template = (Template) object;
+			return template.width == width && template.height == height && Arrays.equals(template.pixels, pixels);
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(pixels) * 31 + width;
+	}
+
+}
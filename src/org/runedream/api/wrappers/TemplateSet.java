@@ -0,0 +1,256 @@
+package org.runedream.api.wrappers;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.runedream.api.methods.Frame;
+import org.runedream.api.methods.Game;
+import org.runedream.api.util.PointBuffer;
+
+/**
+ * A set of templates searched for exact matches all at once, such as the item sprites which may fill an inventory slot.
+ * <br>
+ * Every template is reduced to a two-dimensional rolling hash: a hash of each row of pixels, then a hash of the column
+ * of row hashes. The hashes of every area of a frame of a given size are computed in a single pass, rolling from one
+ * area to the next, so the cost of a search depends on the size of the frame and the amount of distinct template sizes
+ * rather than on the size or amount of templates. Areas whose hash equals that of a template are compared pixel by
+ * pixel before being reported.
+ * <br>
+ * Templates with transparent pixels can not be hashed, as the pixels they are drawn over vary, so they are searched
+ * for one by one.
+ *
+ * @see Template
+ */
+public class TemplateSet {
+
+	private static final long ROW_BASE = 0x9E3779B97F4A7C15L;
+	private static final long COLUMN_BASE = 0xC2B2AE3D27D4EB4FL;
+
+	private final Template[] templates;
+	private final Group[] groups;
+	private final int[] masked;
+
+	/**
+	 * The templates of a set sharing a size, ordered by hash.
+	 */
+	private static final class Group {
+
+		private final int width;
+		private final int height;
+		private final long[] hashes;
+		private final int[] indices;
+
+		private Group(final int width, final int height, final long[] hashes, final int[] indices) {
+			this.width = width;
+			this.height = height;
+			this.hashes = hashes;
+			this.indices = indices;
+		}
+	}
+
+	/**
+	 * Constructs a TemplateSet.
+	 * @param templates The templates of the set.
+	 */
+	public TemplateSet(final Template... templates) {
+		this.templates = templates.clone();
+		final long[] hashes = new long[templates.length];
+		final int[] masked = new int[templates.length];
+		final Integer[] hashed = new Integer[templates.length];
+		int maskedCount = 0, hashedCount = 0;
+		for (int i = 0; i < templates.length; i++) {
+			if (templates[i].isMasked()) {
+				masked[maskedCount++] = i;
+			} else {
+				hashes[i] = hash(templates[i]);
+				hashed[hashedCount++] = i;
+			}
+		}
+		this.masked = Arrays.copyOf(masked, maskedCount);
+		final Integer[] order = Arrays.copyOf(hashed, hashedCount);
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(final Integer a, final Integer b) {
+				final Template first = templates[a], second = templates[b];
+				if (first.getWidth() != second.getWidth()) {
+					return first.getWidth() < second.getWidth() ? -1 : 1;
+				}
+				if (first.getHeight() != second.getHeight()) {
+					return first.getHeight() < second.getHeight() ? -1 : 1;
+				}
+				return hashes[a] < hashes[b] ? -1 : hashes[a] > hashes[b] ? 1 : 0;
+			}
+		});
+		int count = 0;
+		final Group[] groups = new Group[order.length];
+		for (int start = 0, end; start < order.length; start = end) {
+			final Template template = templates[order[start]];
+			end = start + 1;
+			while (end < order.length && templates[order[end]].getWidth() == template.getWidth()
+					&& templates[order[end]].getHeight() == template.getHeight()) {
+				end++;
+			}
+			final long[] keys = new long[end - start];
+			final int[] indices = new int[end - start];
+			for (int i = start; i < end; i++) {
+				keys[i - start] = hashes[order[i]];
+				indices[i - start] = order[i];
+			}
+			groups[count++] = new Group(template.getWidth(), template.getHeight(), keys, indices);
+		}
+		this.groups = Arrays.copyOf(groups, count);
+	}
+
+	private static long hash(final Template template) {
+		long hash = 0;
+		for (int y = 0; y < template.getHeight(); y++) {
+			long row = 0;
+			for (int x = 0; x < template.getWidth(); x++) {
+				row = row * ROW_BASE + (template.getRGB(x, y) & 0xFFFFFF);
+			}
+			hash = hash * COLUMN_BASE + row;
+		}
+		return hash;
+	}
+
+	private static long power(final long base, final int exponent) {
+		long power = 1;
+		for (int i = 0; i < exponent; i++) {
+			power *= base;
+		}
+		return power;
+	}
+
+	/**
+	 * Gets the templates of this set.
+	 * @return The templates.
+	 */
+	public Template[] getTemplates() {
+		return templates.clone();
+	}
+
+	/**
+	 * Gets the upper left corners of all exact matches of each template lying within bounds of a frame.
+	 * @param frame The frame to search.
+	 * @param bounds The bounds the matches must lie within.
+	 * @return A buffer of the upper left corners of the matches of each template, in row-major order, indexed as the
+	 * templates of this set.
+	 */
+	public PointBuffer[] getAll(final Frame frame, final Rectangle bounds) {
+		final PointBuffer[] found = new PointBuffer[templates.length];
+		for (int i = 0; i < found.length; i++) {
+			found[i] = new PointBuffer();
+		}
+		final Rectangle area = bounds.intersection(frame.getBounds());
+		for (final Group group : groups) {
+			search(frame, area, group, found, false);
+		}
+		for (final int index : masked) {
+			templates[index].getAll(frame, area, Template.Metric.SAD, 0, found[index]);
+		}
+		return found;
+	}
+
+	/**
+	 * Gets the upper left corners of all exact matches of each template lying within bounds of the game image.
+	 * @param bounds The bounds the matches must lie within.
+	 * @return A buffer of the upper left corners of the matches of each template, in row-major order, indexed as the
+	 * templates of this set.
+	 */
+	public PointBuffer[] getAll(final Rectangle bounds) {
+		return getAll(Game.getFrame(bounds), bounds);
+	}
+
+	/**
+	 * Gets the first template of this set found to have an exact match lying within bounds of a frame. The search
+	 * stops at the first match verified, so when several templates match, the one returned depends on their sizes and
+	 * the positions of their matches rather than on their order within the set.
+	 * @param frame The frame to search.
+	 * @param bounds The bounds the match must lie within.
+	 * @return The first template matched; or null if none.
+	 */
+	public Template getFirst(final Frame frame, final Rectangle bounds) {
+		final Rectangle area = bounds.intersection(frame.getBounds());
+		for (final Group group : groups) {
+			final int index = search(frame, area, group, null, true);
+			if (index != -1) {
+				return templates[index];
+			}
+		}
+		for (final int index : masked) {
+			if (templates[index].isValid(frame, area, Template.Metric.SAD, 0)) {
+				return templates[index];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the first template of this set with an exact match lying within bounds of the game image.
+	 * @param bounds The bounds the match must lie within.
+	 * @return The first template matched; or null if none.
+	 */
+	public Template getFirst(final Rectangle bounds) {
+		return getFirst(Game.getFrame(bounds), bounds);
+	}
+
+	/**
+	 * Hashes every area of the size of a group within an area of a frame, appending exact matches of the templates of
+	 * the group in row-major order, or stopping at the first if only it is wanted.
+	 * @return The index of the template of the first match if stopping at it; otherwise -1.
+	 */
+	private int search(final Frame frame, final Rectangle area, final Group group, final PointBuffer[] found,
+			final boolean first) {
+		final int width = group.width, height = group.height;
+		if (area.width < width || area.height < height) {
+			return -1;
+		}
+		final int columns = area.width - width + 1;
+		final long rowPower = power(ROW_BASE, width);
+		final long columnPower = power(COLUMN_BASE, height);
+		// the row hashes of the last rows, as the oldest must be rolled out of the column hashes
+		final long[][] rows = new long[height][columns];
+		final long[] hashes = new long[columns];
+		final int[] pixels = frame.getPixels();
+		for (int y = 0; y < area.height; y++) {
+			final long[] row = rows[y % height];
+			final int start = frame.indexOf(area.x, area.y + y);
+			long hash = 0;
+			for (int i = start; i < start + width - 1; i++) {
+				hash = hash * ROW_BASE + (pixels[i] & 0xFFFFFF);
+			}
+			for (int x = 0, i = start + width - 1; x < columns; x++, i++) {
+				hash = hash * ROW_BASE + (pixels[i] & 0xFFFFFF);
+				if (x > 0) {
+					hash -= (pixels[i - width] & 0xFFFFFF) * rowPower;
+				}
+				hashes[x] = hashes[x] * COLUMN_BASE + hash - (y >= height ? row[x] * columnPower : 0);
+				row[x] = hash;
+			}
+			if (y < height - 1) {
+				continue;
+			}
+			final int top = area.y + y - height + 1;
+			for (int x = 0; x < columns; x++) {
+				int index = Arrays.binarySearch(group.hashes, hashes[x]);
+				if (index < 0) {
+					continue;
+				}
+				while (index > 0 && group.hashes[index - 1] == hashes[x]) {
+					index--;
+				}
+				for (; index < group.hashes.length && group.hashes[index] == hashes[x]; index++) {
+					final int template = group.indices[index];
+					if (templates[template].equals(frame, area.x + x, top)) {
+						if (first) {
+							return template;
+						}
+						found[template].add(area.x + x, top);
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,210 @@
+package org.runedream.api.methods;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks {@link OCR#findString(Frame, Rectangle, Color, OCR.FontType)} against a point by point reading of the same
+ * renderings, as findString read them before letters were matched as row bitmasks.
+ * <br>
+ * Random glyphs are installed as the letters of a font in place of the bitmaps of the fonts directory, and random
+ * strings of them are drawn over a noisy background, each followed by one or a few columns of space. Every reading is
+ * done both with the color of the text given and without, and must equal the reference reading exactly. Throws on the
+ * first difference, so a clean exit means the check passed.
+ */
+public final class FindStringCheck {
+
+	static final String CHARACTERS = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+	/**
+	 * The summed channel difference below which the original reader took a point to be of the text color.
+	 */
+	private static final int TOLERANCE = 40;
+	private static final int TRIALS = 2000;
+
+	private FindStringCheck() {
+	}
+
+	public static void main(final String[] args) throws Exception {
+		final Random random = new Random(5);
+		final boolean[][][][] fonts = new boolean[OCR.FontType.values().length][][][];
+		// only the searched font has letters, so readings of any font find only its letters
+		for (int i = 0; i < fonts.length; i++) {
+			fonts[i] = i == 0 ? createGlyphs(random, 6, 8) : new boolean[0][][];
+		}
+		install(fonts);
+		final OCR.FontType font = OCR.FontType.values()[0];
+		int read = 0;
+		for (int trial = 0; trial < TRIALS; trial++) {
+			final int color = trial % 2 == 0 ? 0xFFFF00 : 0x00FFFF;
+			final StringBuilder text = new StringBuilder();
+			final BufferedImage image = render(random, fonts[0], color, text);
+			final Frame frame = Frame.capture(image);
+			final Rectangle rec = new Rectangle(95, 195, 200 + random.nextInt(50), 20);
+			final Color fontC = trial % 4 < 2 ? new Color(color) : null;
+			final String found = OCR.findString(frame, rec, fontC, font);
+			final String expected = reference(frame, rec, fontC, fonts, 0, false);
+			if (!found.equals(expected)) {
+				throw new IllegalStateException("Trial " + trial + " read \"" + found + "\", expected \"" + expected + "\"");
+			}
+			if (found.replace(" ", "").equals(text.toString())) {
+				read++;
+			}
+		}
+		System.out.println(TRIALS + " readings equal the reference; " + read + " read the drawn text exactly");
+	}
+
+	/**
+	 * Creates a glyph for each of the characters, with a vertical stroke so that no glyph is blank.
+	 */
+	static boolean[][][] createGlyphs(final Random random, final int width, final int height) {
+		final boolean[][][] glyphs = new boolean[CHARACTERS.length()][height][width];
+		for (final boolean[][] glyph : glyphs) {
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					glyph[y][x] = random.nextInt(3) == 0 || (x == 2 && y > 1);
+				}
+			}
+		}
+		return glyphs;
+	}
+
+	/**
+	 * Installs glyphs as the letters of every font, in place of those read from the fonts directory. Must be called
+	 * before the first reading.
+	 */
+	static void install(final boolean[][][][] fonts) throws Exception {
+		final Class<?> type = Class.forName(OCR.class.getName() + "$Font");
+		final Method parse = OCR.class.getDeclaredMethod("parseBMP", BufferedImage.class, char.class);
+		parse.setAccessible(true);
+		final Field field = OCR.class.getDeclaredField("ALL_LETTERS");
+		field.setAccessible(true);
+		final Object letters = field.get(null);
+		for (int i = 0; i < fonts.length; i++) {
+			final Object font = Array.newInstance(type, fonts[i].length);
+			for (int k = 0; k < fonts[i].length; k++) {
+				final boolean[][] glyph = fonts[i][k];
+				final BufferedImage image = new BufferedImage(glyph[0].length, glyph.length, BufferedImage.TYPE_INT_RGB);
+				for (int y = 0; y < glyph.length; y++) {
+					for (int x = 0; x < glyph[y].length; x++) {
+						image.setRGB(x, y, glyph[y][x] ? 0xFFFFFF : 0);
+					}
+				}
+				Array.set(font, k, parse.invoke(null, image, CHARACTERS.charAt(k)));
+			}
+			Array.set(letters, i, font);
+		}
+	}
+
+	/**
+	 * Renders 3 to 8 random glyphs of a font in a color over a noisy background, appending their characters to a
+	 * builder.
+	 */
+	static BufferedImage render(final Random random, final boolean[][][] glyphs, final int color, final StringBuilder text) {
+		final BufferedImage image = new BufferedImage(765, 503, BufferedImage.TYPE_INT_RGB);
+		for (int y = 180; y < 240; y++) {
+			for (int x = 80; x < 400; x++) {
+				image.setRGB(x, y, random.nextInt(0x404040));
+			}
+		}
+		int left = 100 + random.nextInt(20);
+		final int top = 200 + random.nextInt(5);
+		final int amount = 3 + random.nextInt(6);
+		for (int i = 0; i < amount; i++) {
+			final int k = random.nextInt(glyphs.length);
+			final boolean[][] glyph = glyphs[k];
+			text.append(CHARACTERS.charAt(k));
+			for (int y = 0; y < glyph.length; y++) {
+				for (int x = 0; x < glyph[y].length; x++) {
+					if (glyph[y][x]) {
+						image.setRGB(left + x, top + y, color);
+					}
+				}
+			}
+			left += glyph[0].length + 1 + (random.nextInt(5) == 0 ? 3 : 0);
+		}
+		return image;
+	}
+
+	/**
+	 * Reads text point by point: at each point of the text color, or any point if it is not known, every letter is
+	 * anchored on its first point and compared to its whole box.
+	 * @param font The index of the font to read; or -1 to read any, keeping to the font of the first letter found.
+	 */
+	static String reference(final Frame frame, final Rectangle rec, Color fontC, final boolean[][][][] fonts, int font,
+			final boolean multi) {
+		final List<int[]> letters = new ArrayList<int[]>();
+		for (int y = rec.y; y < rec.y + rec.height; y++) {
+			point: for (int x = rec.x; x < rec.x + rec.width; x++) {
+				final Color c = frame.getColorAt(x, y);
+				if (fontC != null && !fontC.equals(c)) {
+					continue;
+				}
+				for (int f = 0; f < fonts.length; f++) {
+					if (font != -1 && f != font) {
+						continue;
+					}
+					letter: for (int k = 0; k < fonts[f].length; k++) {
+						final boolean[][] glyph = fonts[f][k];
+						final int width = glyph[0].length, height = glyph.length;
+						int anchorX = -1, anchorY = -1;
+						anchor: for (int j = 0; j < height; j++) {
+							for (int i = 0; i < width; i++) {
+								if (glyph[j][i]) {
+									anchorX = i;
+									anchorY = j;
+									break anchor;
+								}
+							}
+						}
+						final Rectangle box = new Rectangle(x - anchorX, y - anchorY, width, height);
+						if (!rec.contains(box)) {
+							continue;
+						}
+						for (int j = 0; j < height; j++) {
+							for (int i = 0; i < width; i++) {
+								final Color p = frame.getColorAt(box.x + i, box.y + j);
+								final int distance = Math.abs(p.getRed() - c.getRed()) + Math.abs(p.getGreen() - c.getGreen())
+										+ Math.abs(p.getBlue() - c.getBlue());
+								if (distance < TOLERANCE != glyph[j][i]) {
+									continue letter;
+								}
+							}
+						}
+						letters.add(new int[] { CHARACTERS.charAt(k), box.x, box.x + width });
+						font = f;
+						if (!multi && fontC == null) {
+							fontC = c;
+						}
+						continue point;
+					}
+				}
+			}
+		}
+		final StringBuilder text = new StringBuilder();
+		int[] last = null;
+		while (!letters.isEmpty()) {
+			int[] next = null;
+			for (final int[] letter : letters) {
+				if (next == null || letter[1] < next[1]) {
+					next = letter;
+				}
+			}
+			if (last != null && next[1] - last[2] > 1) {
+				text.append(' ');
+			}
+			text.append((char) next[0]);
+			letters.remove(next);
+			last = next;
+		}
+		return text.toString();
+	}
+
+}
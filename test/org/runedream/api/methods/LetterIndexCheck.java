@@ -0,0 +1,52 @@
+package org.runedream.api.methods;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.util.Random;
+
+/**
+ * Checks that looking letters up in the index of every font reads the same text as trying every letter of every font.
+ * <br>
+ * Each font is given its own random glyphs, of a size differing from font to font, and random strings of one of the
+ * fonts are drawn over a noisy background. Every rendering is read by any font, by its own font and by its text color,
+ * and each reading must equal the point by point reading of {@link FindStringCheck}. Throws on the first difference,
+ * so a clean exit means the check passed.
+ */
+public final class LetterIndexCheck {
+
+	private static final int TRIALS = 600;
+
+	private LetterIndexCheck() {
+	}
+
+	public static void main(final String[] args) throws Exception {
+		final Random random = new Random(7);
+		final OCR.FontType[] types = OCR.FontType.values();
+		final boolean[][][][] fonts = new boolean[types.length][][][];
+		for (int i = 0; i < types.length; i++) {
+			fonts[i] = FindStringCheck.createGlyphs(random, 5 + i % 3, 7 + i % 4);
+		}
+		FindStringCheck.install(fonts);
+		final int color = 0xFFFF00;
+		for (int trial = 0; trial < TRIALS; trial++) {
+			final int font = random.nextInt(types.length);
+			final Frame frame = Frame.capture(FindStringCheck.render(random, fonts[font], color, new StringBuilder()));
+			final Rectangle rec = new Rectangle(95, 195, 200 + random.nextInt(50), 20);
+			check(trial, "any font", OCR.findString(frame, rec, null, true),
+					FindStringCheck.reference(frame, rec, null, fonts, -1, true));
+			check(trial, types[font].getName(), OCR.findString(frame, rec, null, types[font], true),
+					FindStringCheck.reference(frame, rec, null, fonts, font, true));
+			check(trial, "text color", OCR.findString(frame, rec, new Color(color)),
+					FindStringCheck.reference(frame, rec, new Color(color), fonts, -1, false));
+		}
+		System.out.println(TRIALS + " renderings read by any font, their font and their color equal the reference");
+	}
+
+	private static void check(final int trial, final String reading, final String found, final String expected) {
+		if (!found.equals(expected)) {
+			throw new IllegalStateException("Trial " + trial + " by " + reading + " read \"" + found + "\", expected \""
+					+ expected + "\"");
+		}
+	}
+
+}
@@ -0,0 +1,196 @@
+package org.runedream.api.methods;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.Field;
+import java.util.Random;
+
+/**
+ * Checks that reading the uptext incrementally, from the first column changed since the last frame, reads the same
+ * text as reading every frame anew.
+ * <br>
+ * Uptext is drawn from the points of the option characters over a noisy background, and changed between polls in one
+ * of four ways: new text over the whole band; new text from a random column on, keeping the text before it; a few
+ * flickering pixels anywhere in the band; or not at all. Every poll is read by {@link OCR#getUpText(Frame)} and by the
+ * reader as it was before it kept state across frames, and the two must be equal. Throws on the first difference, so a
+ * clean exit means the check passed.
+ */
+public final class UpTextCheck {
+
+	private static final int POLLS = 3000;
+	private static final int[] COLORS = { 14474460, 56540, 14474240, 15106620 };
+	private static final String[] CHANGES = { "new", "changed suffix", "flicker", "unchanged" };
+
+	private static int[][] fontX, fontY, shadowX, shadowY;
+	private static int[] widths, heights;
+	private static char[] letters;
+
+	private UpTextCheck() {
+	}
+
+	public static void main(final String[] args) throws Exception {
+		final Class<?> reader = Class.forName(OCR.class.getName() + "$UpTextOCR");
+		final Class<?> type = Class.forName(reader.getName() + "$Character");
+		final Field options = reader.getDeclaredField("optionCharacters");
+		options.setAccessible(true);
+		final Object[] characters = (Object[]) options.get(null);
+		final int amount = characters.length;
+		fontX = new int[amount][];
+		fontY = new int[amount][];
+		shadowX = new int[amount][];
+		shadowY = new int[amount][];
+		widths = new int[amount];
+		heights = new int[amount];
+		letters = new char[amount];
+		for (int i = 0; i < amount; i++) {
+			fontX[i] = (int[]) get(type, "fontPointsX", characters[i]);
+			fontY[i] = (int[]) get(type, "fontPointsY", characters[i]);
+			shadowX[i] = (int[]) get(type, "shadowPointsX", characters[i]);
+			shadowY[i] = (int[]) get(type, "shadowPointsY", characters[i]);
+			widths[i] = (Integer) get(type, "width", characters[i]);
+			heights[i] = (Integer) get(type, "height", characters[i]);
+			letters[i] = (Character) get(type, "character", characters[i]);
+		}
+		final Random random = new Random(11);
+		final BufferedImage image = new BufferedImage(765, 503, BufferedImage.TYPE_INT_RGB);
+		final int[] counts = new int[CHANGES.length];
+		for (int poll = 0; poll < POLLS; poll++) {
+			final int change = poll == 0 ? 0 : random.nextInt(CHANGES.length);
+			if (change == 0) {
+				fill(image, random, 0);
+				draw(image, random, 7, random.nextInt(3));
+			} else if (change == 1) {
+				final int from = 10 + random.nextInt(400);
+				fill(image, random, from);
+				draw(image, random, from + random.nextInt(20), 1 + random.nextInt(3));
+			} else if (change == 2) {
+				for (int i = 0; i < 3; i++) {
+					image.setRGB(5 + random.nextInt(755), 5 + random.nextInt(20), random.nextInt(0x1000000));
+				}
+			}
+			counts[change]++;
+			final Frame frame = Frame.capture(image);
+			final String found = OCR.getUpText(frame);
+			final String expected = reference(frame);
+			if (!found.equals(expected)) {
+				throw new IllegalStateException("Poll " + poll + " (" + CHANGES[change] + ") read \"" + found
+						+ "\", expected \"" + expected + "\"");
+			}
+		}
+		final StringBuilder summary = new StringBuilder();
+		for (int i = 0; i < CHANGES.length; i++) {
+			summary.append(i == 0 ? "" : ", ").append(counts[i]).append(' ').append(CHANGES[i]);
+		}
+		System.out.println(POLLS + " polls equal the reference: " + summary);
+	}
+
+	private static Object get(final Class<?> type, final String name, final Object character) throws Exception {
+		final Field field = type.getDeclaredField(name);
+		field.setAccessible(true);
+		return field.get(character);
+	}
+
+	/**
+	 * Fills the band of the uptext with noise, from a given column on.
+	 */
+	private static void fill(final BufferedImage image, final Random random, final int from) {
+		for (int y = 0; y < 40; y++) {
+			for (int x = from; x < image.getWidth(); x++) {
+				image.setRGB(x, y, random.nextInt(0x303030));
+			}
+		}
+	}
+
+	/**
+	 * Draws a few words of random option characters in one of the uptext colors, starting at a given column of the
+	 * uptext.
+	 */
+	private static void draw(final BufferedImage image, final Random random, int x, final int words) {
+		final int color = COLORS[random.nextInt(COLORS.length)];
+		for (int w = 0; w < words; w++) {
+			final int amount = 2 + random.nextInt(6);
+			for (int k = 0; k < amount; k++) {
+				final int c = random.nextInt(letters.length);
+				final int top = 7 + random.nextInt(2);
+				if (x + widths[c] + 1 >= 760) {
+					return;
+				}
+				for (int i = 0; i < fontX[c].length; i++) {
+					image.setRGB(5 + x + fontX[c][i], top + fontY[c][i], color);
+				}
+				x += widths[c] + 1;
+			}
+			x += 6;
+		}
+	}
+
+	/**
+	 * Reads the uptext of a frame anew: binarizes the whole band, finds a capital letter within its first 50 columns,
+	 * and reads on from there.
+	 */
+	private static String reference(final Frame frame) {
+		final Rectangle bounds = new Rectangle(5, 5, Game.VIEWPORT.width - 10, 20);
+		final boolean[][] text = new boolean[bounds.width][bounds.height];
+		for (int x = 0; x < bounds.width; x++) {
+			for (int y = 0; y < bounds.height; y++) {
+				final int c = frame.getRGB(bounds.x + x, bounds.y + y) & 0xFFFFFF;
+				for (final int color : COLORS) {
+					text[x][y] |= getDistanceSquare(c, color) < 12500;
+				}
+			}
+		}
+		final StringBuilder builder = new StringBuilder();
+		int posX = 0;
+		first: for (int x = 0; x < 50; x++) {
+			for (int y = 0; y < bounds.height; y++) {
+				for (int c = 0; c < letters.length; c++) {
+					if (letters[c] >= 'A' && letters[c] <= 'Z' && y + heights[c] < 20 && x + widths[c] < 25
+							&& isAt(text, c, x, y)) {
+						builder.append(letters[c]);
+						posX = x + widths[c];
+						break first;
+					}
+				}
+			}
+		}
+		int last = 0;
+		for (; posX < bounds.width; posX++) {
+			column: for (int y = 0; y < bounds.height; y++) {
+				for (int c = 0; c < letters.length; c++) {
+					if (y + heights[c] < bounds.height && posX + widths[c] < bounds.width && isAt(text, c, posX, y)) {
+						if (last != 0 && posX - last > 5) {
+							builder.append(' ');
+						}
+						builder.append(letters[c]);
+						posX += widths[c] - 1;
+						last = posX + 1;
+						break column;
+					}
+				}
+			}
+		}
+		return builder.toString();
+	}
+
+	private static boolean isAt(final boolean[][] text, final int c, final int x, final int y) {
+		for (int j = 0; j < fontX[c].length; j++) {
+			if (!text[x + fontX[c][j]][y + fontY[c][j]]) {
+				return false;
+			}
+		}
+		for (int j = 0; j < shadowX[c].length; j++) {
+			if (text[x + shadowX[c][j]][y + shadowY[c][j]]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int getDistanceSquare(final int c1, final int c2) {
+		final int r = ((c1 >> 16) & 0xFF) - ((c2 >> 16) & 0xFF);
+		final int g = ((c1 >> 8) & 0xFF) - ((c2 >> 8) & 0xFF);
+		final int b = (c1 & 0xFF) - (c2 & 0xFF);
+		return r * r + g * g + b * b;
+	}
+
+}
@@ -0,0 +1,107 @@
+package org.runedream.api.methods;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A scan kernel checking a vector of pixels at a time with the incubating vector API.
+ * <br>
+ * This source is kept apart from the others, as it needs Java 16 or later and <tt>--add-modules
+ * jdk.incubator.vector</tt> both to compile and to run; without either, {@link ScanKernel#load()} falls back to the row
+ * kernel of the matcher. Single colors are checked by lane arithmetic for every metric but
+ * {@link ColorMatcher.Metric#RELATIVE}; those and sets of colors are left to the row kernel of the matcher.
+ */
+final class VectorScanKernel extends ScanKernel {
+
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+	private static final IntVector WEIGHTS = IntVector.broadcast(SPECIES, 1)
+			.lanewise(VectorOperators.LSHL, IntVector.zero(SPECIES).addIndex(1));
+
+	private static final int SUM = 0;
+	private static final int EUCLIDEAN = 1;
+	private static final int MAX = 2;
+
+	/**
+	 * Constructs a VectorScanKernel.
+	 * @throws UnsupportedOperationException If the processor has no vectors wide enough to be worth using.
+	 */
+	VectorScanKernel() {
+		if (SPECIES.length() < 4) {
+			throw new UnsupportedOperationException("Vectors of " + SPECIES.length() + " lanes");
+		}
+	}
+
+	void matchRow(final ColorMatcher matcher, final int[] pixels, final int offset, final int length,
+			final long[] masks) {
+		final int kind;
+		final int limit;
+		switch (matcher.getMetric()) {
+		case AVERAGE:
+		case SUM:
+			kind = SUM;
+			limit = matcher.getLimit();
+			break;
+		case EUCLIDEAN:
+			kind = EUCLIDEAN;
+			limit = matcher.getLimit();
+			break;
+		case MAX:
+			kind = MAX;
+			limit = matcher.getTolerance();
+			break;
+		default:
+			kind = -1;
+			limit = 0;
+		}
+		if (kind == -1 || matcher.getColorCount() != 1) {
+			matcher.matchRow(pixels, offset, length, masks);
+			return;
+		}
+		final int rgb = matcher.getColors()[0].getRGB();
+		final int r = (rgb >> 16) & 0xFF, g = (rgb >> 8) & 0xFF, b = rgb & 0xFF;
+		final int lanes = SPECIES.length();
+		final int end = offset + length;
+		for (int w = 0, start = offset; start < end; w++, start += 64) {
+			final int stop = Math.min(start + 64, end);
+			long bits = 0;
+			int i = start;
+			for (; i <= stop - lanes; i += lanes) {
+				final IntVector p = IntVector.fromArray(SPECIES, pixels, i);
+				final IntVector dr = p.lanewise(VectorOperators.LSHR, 16).and(0xFF).sub(r).abs();
+				final IntVector dg = p.lanewise(VectorOperators.LSHR, 8).and(0xFF).sub(g).abs();
+				final IntVector db = p.and(0xFF).sub(b).abs();
+				final IntVector cost;
+				if (kind == SUM) {
+					cost = dr.add(dg).add(db);
+				} else if (kind == EUCLIDEAN) {
+					cost = dr.mul(dr).add(dg.mul(dg)).add(db.mul(db));
+				} else {
+					cost = dr.max(dg).max(db);
+				}
+				// a blend and an or-reduction, as VectorMask.toLong is far slower on Java 17
+				bits |= (long) IntVector.zero(SPECIES).blend(WEIGHTS, cost.compare(VectorOperators.LE, limit))
+						.reduceLanes(VectorOperators.OR) << (i - start);
+			}
+			for (; i < stop; i++) {
+				final int p = pixels[i];
+				final int dr = Math.abs(((p >> 16) & 0xFF) - r);
+				final int dg = Math.abs(((p >> 8) & 0xFF) - g);
+				final int db = Math.abs((p & 0xFF) - b);
+				final int cost;
+				if (kind == SUM) {
+					cost = dr + dg + db;
+				} else if (kind == EUCLIDEAN) {
+					cost = dr * dr + dg * dg + db * db;
+				} else {
+					cost = Math.max(dr, Math.max(dg, db));
+				}
+				if (cost <= limit) {
+					bits |= 1L << (i - start);
+				}
+			}
+			masks[w] = bits;
+		}
+	}
+
+}